@@ -0,0 +1,119 @@
+package com.example.apiservice.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 최근에 처리한 Idempotency-Key 와 응답을 보관한다.
+ *
+ * <pre>
+ *      - 배치의 chunk 가 rollback 후 다시 처리되면 같은 key 로 같은 요청이 다시 들어온다.
+ *          - 이미 처리한 key 이면 다시 처리하지 않고 보관한 응답을 돌려준다.
+ *          - 같은 key 가 처리 중이면 처리가 끝날 때까지 기다렸다가 같은 응답을 돌려준다.
+ *      - 처리에 실패한 key 는 보관하지 않으므로 다시 요청하면 처리한다.
+ *      - 최대 max-entries 개, ttl-seconds 동안 보관하며 오래된 key 부터 제거한다.
+ * </pre>
+ */
+@Slf4j
+@Component
+public class IdempotencyCache {
+
+    private final int maxEntries;
+
+    private final long ttlNanos;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+
+    public IdempotencyCache(@Value("${api.idempotency.max-entries:10000}") int maxEntries,
+        @Value("${api.idempotency.ttl-seconds:600}") long ttlSeconds) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+    }
+
+    public String getOrProcess(String key, Supplier<String> processor) {
+
+        if (key == null || key.isEmpty()) {
+            return processor.get();
+        }
+
+        CompletableFuture<String> response;
+        boolean owner = false;
+
+        synchronized (entries) {
+            long now = System.nanoTime();
+
+            evict(now);
+
+            Entry entry = entries.get(key);
+
+            if (entry == null) {
+                entry = new Entry(new CompletableFuture<>(), now + ttlNanos);
+                entries.put(key, entry);
+                owner = true;
+            }
+
+            response = entry.response;
+        }
+
+        if (!owner) {
+            log.info("duplicate request is skipped. key={}", key);
+
+            try {
+                return response.join();
+            } catch (CompletionException e) {
+                // 먼저 처리하던 요청이 실패한 경우 이 요청을 다시 처리한다.
+                return getOrProcess(key, processor);
+            }
+        }
+
+        try {
+            String result = processor.get();
+            response.complete(result);
+
+            return result;
+        } catch (RuntimeException e) {
+            synchronized (entries) {
+                entries.remove(key);
+            }
+            response.completeExceptionally(e);
+
+            throw e;
+        }
+    }
+
+    /**
+     * 입력 순서대로 보관되므로 앞에서부터 만료된 key 와 초과한 key 를 제거한다.
+     */
+    private void evict(long now) {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next().getValue();
+
+            if (entries.size() < maxEntries && entry.expiresAt - now > 0) {
+                break;
+            }
+
+            iterator.remove();
+        }
+    }
+
+    private static class Entry {
+
+        private final CompletableFuture<String> response;
+        private final long expiresAt;
+
+        private Entry(CompletableFuture<String> response, long expiresAt) {
+            this.response = response;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -1,53 +1,73 @@
 package com.example.apiservice.controller;
 
+import com.example.apiservice.cache.IdempotencyCache;
 import com.example.apiservice.model.ApiInfo;
 import com.example.apiservice.model.ApiRequestVO;
 import com.example.apiservice.model.ProductVO;
 import java.util.List;
 import java.util.stream.Collectors;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RestController;
 
 @Slf4j
 @RestController
+@RequiredArgsConstructor
 public class ApiController {
 
+    /**
+     * 배치가 요청마다 보내는 key (partition + chunk 순번 + 요청 순번 + 내용 hash)
+     */
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
+    private final IdempotencyCache idempotencyCache;
+
     @PostMapping(path = "api/product/1")
-    public String product1(@RequestBody ApiInfo apiInfo) {
+    public String product1(@RequestBody ApiInfo apiInfo,
+        @RequestHeader(name = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
 
-        List<ProductVO> productList = apiInfo.getApiRequestList().stream()
-            .map(ApiRequestVO::getProduct)
-            .collect(Collectors.toList());
+        return idempotencyCache.getOrProcess(idempotencyKey, () -> {
+            List<ProductVO> productList = apiInfo.getApiRequestList().stream()
+                .map(ApiRequestVO::getProduct)
+                .collect(Collectors.toList());
 
-        log.info("productList={}", productList);
+            log.info("productList={}", productList);
 
-        return "product1 was successfully processed.";
+            return "product1 was successfully processed.";
+        });
     }
 
     @PostMapping(path = "api/product/2")
-    public String product2(@RequestBody ApiInfo apiInfo) {
+    public String product2(@RequestBody ApiInfo apiInfo,
+        @RequestHeader(name = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
 
-        List<ProductVO> productList = apiInfo.getApiRequestList().stream()
-            .map(ApiRequestVO::getProduct)
-            .collect(Collectors.toList());
+        return idempotencyCache.getOrProcess(idempotencyKey, () -> {
+            List<ProductVO> productList = apiInfo.getApiRequestList().stream()
+                .map(ApiRequestVO::getProduct)
+                .collect(Collectors.toList());
 
-        log.info("productList={}", productList);
+            log.info("productList={}", productList);
 
-        return "product2 was successfully processed.";
+            return "product2 was successfully processed.";
+        });
     }
 
     @PostMapping(path = "api/product/3")
-    public String product3(@RequestBody ApiInfo apiInfo) {
+    public String product3(@RequestBody ApiInfo apiInfo,
+        @RequestHeader(name = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
 
-        List<ProductVO> productList = apiInfo.getApiRequestList().stream()
-            .map(ApiRequestVO::getProduct)
-            .collect(Collectors.toList());
+        return idempotencyCache.getOrProcess(idempotencyKey, () -> {
+            List<ProductVO> productList = apiInfo.getApiRequestList().stream()
+                .map(ApiRequestVO::getProduct)
+                .collect(Collectors.toList());
 
-        log.info("productList={}", productList);
+            log.info("productList={}", productList);
 
-        return "product3 was successfully processed.";
+            return "product3 was successfully processed.";
+        });
     }
 
 }
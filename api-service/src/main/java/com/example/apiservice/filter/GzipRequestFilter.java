@@ -0,0 +1,166 @@
+package com.example.apiservice.filter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import javax.servlet.FilterChain;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Content-Encoding: gzip 으로 압축된 요청 body 를 풀어서 ApiController 에 전달한다.
+ * <p>
+ * 배치 쪽 ApiRequestBodyWriter 에서 api.client.gzip=true 로 설정한 경우 사용된다.
+ */
+@Component
+public class GzipRequestFilter extends OncePerRequestFilter {
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+        FilterChain filterChain) throws ServletException, IOException {
+
+        String contentEncoding = request.getHeader(HttpHeaders.CONTENT_ENCODING);
+
+        if (!"gzip".equalsIgnoreCase(contentEncoding)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        filterChain.doFilter(new GzipRequestWrapper(request), response);
+    }
+
+    private static class GzipRequestWrapper extends HttpServletRequestWrapper {
+
+        /**
+         * getInputStream() 이 여러 번 호출되어도 같은 stream 을 돌려줘야 이미 읽은 위치를 이어서 읽는다.
+         */
+        private GzipServletInputStream inputStream;
+
+        private BufferedReader reader;
+
+        private GzipRequestWrapper(HttpServletRequest request) {
+            super(request);
+        }
+
+        @Override
+        public ServletInputStream getInputStream() throws IOException {
+            if (inputStream == null) {
+                inputStream = new GzipServletInputStream(super.getInputStream());
+            }
+
+            return inputStream;
+        }
+
+        @Override
+        public BufferedReader getReader() throws IOException {
+            if (reader == null) {
+                String encoding = getCharacterEncoding();
+                Charset charset = encoding == null ? StandardCharsets.UTF_8 : Charset.forName(encoding);
+
+                reader = new BufferedReader(new InputStreamReader(getInputStream(), charset));
+            }
+
+            return reader;
+        }
+
+        // 압축이 풀린 body 의 길이는 알 수 없다.
+        @Override
+        public int getContentLength() {
+            return -1;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return -1;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            if (HttpHeaders.CONTENT_ENCODING.equalsIgnoreCase(name)) {
+                return null;
+            }
+
+            return super.getHeader(name);
+        }
+    }
+
+    /**
+     * 압축된 원본 stream 을 한 번만 감싸서 압축을 푼다.
+     *
+     * <pre>
+     *      - isFinished() 는 압축이 풀린 body 를 끝(-1)까지 읽었는지로 판단한다.
+     *          - available() 은 gzip trailer 를 읽기 전에도 0 을 돌려줄 수 있으므로 사용하지 않는다.
+     *      - isReady(), setReadListener() 는 원본 stream 에 위임한다.
+     * </pre>
+     */
+    private static class GzipServletInputStream extends ServletInputStream {
+
+        private final ServletInputStream source;
+
+        private final InputStream gzipStream;
+
+        private volatile boolean finished;
+
+        private GzipServletInputStream(ServletInputStream source) throws IOException {
+            this.source = source;
+            this.gzipStream = new GZIPInputStream(source, BUFFER_SIZE);
+        }
+
+        @Override
+        public boolean isFinished() {
+            return finished;
+        }
+
+        @Override
+        public boolean isReady() {
+            return finished || source.isReady();
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            source.setReadListener(readListener);
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (finished) {
+                return -1;
+            }
+
+            int b = gzipStream.read();
+            finished = b == -1;
+
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (finished) {
+                return -1;
+            }
+
+            int read = gzipStream.read(b, off, len);
+            finished = read == -1;
+
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            gzipStream.close();
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package com.example.springbatchchunk.reader.ch05_db.paging;
 
 import com.example.springbatchchunk.reader.ch05_db.entity.Member;
+import com.example.springbatchchunk.reader.ch05_db.paging.reader.JpaKeysetPagingItemReader;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import javax.persistence.EntityManagerFactory;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -10,7 +13,7 @@ import org.springframework.batch.core.configuration.annotation.JobBuilderFactory
 import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
 import org.springframework.batch.core.launch.support.RunIdIncrementer;
 import org.springframework.batch.item.ItemReader;
-import org.springframework.batch.item.database.builder.JpaPagingItemReaderBuilder;
+import org.springframework.batch.item.database.Order;
 import org.springframework.batch.repeat.RepeatStatus;
 import org.springframework.context.annotation.Bean;
 
@@ -19,6 +22,8 @@ import org.springframework.context.annotation.Bean;
  *
  * <pre>
  *     - Paging 기반의 JPA 구현체로써 EntityManagerFactory 객체가 필요하며 Query 는 JPQL 을 사용한다.
+ *     - JpaPagingItemReader 는 offset 으로 page 를 조회하므로 뒤쪽 page 일수록 느려진다.
+ *     - JpaKeysetPagingItemReader 는 이전 page 의 마지막 id 다음부터 조회하므로 page 위치와 상관없이 일정하다.
  * </pre>
  */
 @Slf4j
@@ -61,12 +66,32 @@ public class JpaPagingItemReaderConfiguration {
 
     @Bean
     public ItemReader<Member> itemReader() {
-        return new JpaPagingItemReaderBuilder<Member>()
-            .name("jpa-paging-reader")
-            .entityManagerFactory(entityManagerFactory)
-            .pageSize(2) // 페이지 크기 설정
-            .queryString("select m from Member m join fetch m.address") // ItemReader 가 조회할 때 사용할 JPQL 문장 설정
+        /*
+         * offset 기반 JpaPagingItemReader
+         */
+//        return new JpaPagingItemReaderBuilder<Member>()
+//            .name("jpa-paging-reader")
+//            .entityManagerFactory(entityManagerFactory)
+//            .pageSize(2) // 페이지 크기 설정
+//            .queryString("select m from Member m join fetch m.address") // ItemReader 가 조회할 때 사용할 JPQL 문장 설정
 //            .parameterValues(parameters)
-            .build();
+//            .build();
+
+        /*
+         * keyset 기반 JpaKeysetPagingItemReader
+         */
+        Map<String, Order> sortKeys = new LinkedHashMap<>();
+        sortKeys.put("id", Order.ASCENDING);
+
+        JpaKeysetPagingItemReader<Member> itemReader = new JpaKeysetPagingItemReader<>();
+        itemReader.setName("jpa-keyset-paging-reader");
+        itemReader.setEntityManagerFactory(entityManagerFactory);
+        itemReader.setEntityClass(Member.class);
+        itemReader.setPageSize(2); // 페이지 크기 설정
+        itemReader.setSelectClause("select m from Member m join fetch m.address");
+        itemReader.setAlias("m");
+        itemReader.setSortKeys(sortKeys); // where m.id > :keyset0 order by m.id asc
+
+        return itemReader;
     }
 }
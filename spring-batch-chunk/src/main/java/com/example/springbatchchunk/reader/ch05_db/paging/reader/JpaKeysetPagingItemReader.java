@@ -0,0 +1,289 @@
+package com.example.springbatchchunk.reader.ch05_db.paging.reader;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.TypedQuery;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.database.AbstractPagingItemReader;
+import org.springframework.batch.item.database.Order;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * 마지막으로 읽은 정렬 key 다음부터 조회하는 JPA Paging ItemReader
+ *
+ * <pre>
+ *      - JpaPagingItemReader 는 setFirstResult(page * pageSize) 로 조회하므로 뒤쪽 page 일수록 DB 가 건너뛰는 row 가 많아진다.
+ *      - 이전 page 의 마지막 key 를 조건으로 조회하므로 page 위치와 상관없이 index 범위 조회 한번으로 읽는다.
+ *          - select m from Member m where (m.id > :keyset0) order by m.id asc
+ *          - 복합 key 는 (a > :k0) or (a = :k0 and b > :k1) 형태로 조건을 만든다.
+ *      - sortKeys 는 유일한 값이어야 한다. (중복되면 page 경계에서 item 이 누락된다.)
+ *      - 재시작을 위해 JdbcPagingItemReader 처럼 page 시작 key 를 ExecutionContext 에 저장한다.
+ *      - read 는 AbstractPagingItemReader 에서 동기화되므로 JdbcPagingItemReader 와 같이 여러 Thread 에서 사용할 수 있다.
+ * </pre>
+ */
+public class JpaKeysetPagingItemReader<T> extends AbstractPagingItemReader<T> {
+
+    private static final String START_AFTER_VALUE = "start.after";
+
+    private static final String KEY_PARAMETER = "keyset";
+
+    private EntityManagerFactory entityManagerFactory;
+
+    private EntityManager entityManager;
+
+    private Class<T> entityClass;
+
+    private String selectClause;
+
+    private String whereClause;
+
+    private String alias;
+
+    private Map<String, Order> sortKeys;
+
+    private Map<String, Object> parameterValues;
+
+    private String firstPageQuery;
+
+    private String remainingPagesQuery;
+
+    private Map<String, Object> startAfterValues;
+
+    private Map<String, Object> previousStartAfterValues;
+
+    public JpaKeysetPagingItemReader() {
+        setName(ClassUtils.getShortName(JpaKeysetPagingItemReader.class));
+    }
+
+    public void setEntityManagerFactory(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    public void setEntityClass(Class<T> entityClass) {
+        this.entityClass = entityClass;
+    }
+
+    /**
+     * where / order by 를 제외한 JPQL (ex. select m from Member m join fetch m.address)
+     */
+    public void setSelectClause(String selectClause) {
+        this.selectClause = selectClause;
+    }
+
+    /**
+     * 추가 조회 조건 (ex. m.age > :age)
+     */
+    public void setWhereClause(String whereClause) {
+        this.whereClause = whereClause;
+    }
+
+    /**
+     * selectClause 에서 조회 대상 entity 의 alias
+     */
+    public void setAlias(String alias) {
+        this.alias = alias;
+    }
+
+    /**
+     * 정렬 key 의 property 경로와 정렬 방향 (입력 순서대로 정렬한다)
+     */
+    public void setSortKeys(Map<String, Order> sortKeys) {
+        this.sortKeys = new LinkedHashMap<>(sortKeys);
+    }
+
+    public void setParameterValues(Map<String, Object> parameterValues) {
+        this.parameterValues = parameterValues;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        super.afterPropertiesSet();
+        Assert.notNull(entityManagerFactory, "An EntityManagerFactory is required");
+        Assert.notNull(entityClass, "An entityClass is required");
+        Assert.hasText(selectClause, "selectClause must be set");
+        Assert.hasText(alias, "alias must be set");
+        Assert.notEmpty(sortKeys, "sortKeys must be set");
+
+        firstPageQuery = buildQuery(false);
+        remainingPagesQuery = buildQuery(true);
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        // 부모의 open 에서 jumpToItem 을 호출하므로 먼저 page 시작 key 를 복원한다.
+        if (isSaveState() && executionContext.containsKey(getExecutionContextKey(START_AFTER_VALUE))) {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> saved = (Map<String, Object>) executionContext.get(
+                getExecutionContextKey(START_AFTER_VALUE));
+            startAfterValues = new LinkedHashMap<>(saved);
+        }
+
+        super.open(executionContext);
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        super.update(executionContext);
+
+        if (!isSaveState()) {
+            return;
+        }
+
+        if (isAtEndOfPage() && startAfterValues != null) {
+            // 다음 page 부터 다시 시작
+            executionContext.put(getExecutionContextKey(START_AFTER_VALUE),
+                new LinkedHashMap<>(startAfterValues));
+        } else if (previousStartAfterValues != null) {
+            // 현재 page 를 다시 읽고 read.count 만큼 건너뛴다.
+            executionContext.put(getExecutionContextKey(START_AFTER_VALUE),
+                new LinkedHashMap<>(previousStartAfterValues));
+        }
+    }
+
+    @Override
+    protected void doOpen() throws Exception {
+        super.doOpen();
+
+        entityManager = entityManagerFactory.createEntityManager();
+    }
+
+    @Override
+    protected void doReadPage() {
+        previousStartAfterValues = startAfterValues;
+
+        // 이전 page 의 entity 가 영속성 컨텍스트에 쌓이지 않도록 한다.
+        entityManager.clear();
+
+        TypedQuery<T> query = createQuery(startAfterValues != null ? remainingPagesQuery : firstPageQuery)
+            .setMaxResults(getPageSize());
+
+        if (startAfterValues != null) {
+            int index = 0;
+            for (String sortKey : sortKeys.keySet()) {
+                query.setParameter(KEY_PARAMETER + index++, startAfterValues.get(sortKey));
+            }
+        }
+
+        if (results == null) {
+            results = new CopyOnWriteArrayList<>();
+        } else {
+            results.clear();
+        }
+
+        List<T> page = query.getResultList();
+        results.addAll(page);
+
+        if (!page.isEmpty()) {
+            startAfterValues = extractSortKeyValues(page.get(page.size() - 1));
+        }
+    }
+
+    @Override
+    protected void doJumpToPage(int itemIndex) {
+        if (startAfterValues != null || getPage() == 0) {
+            return;
+        }
+
+        // 저장된 key 가 없는 경우에만 이전 page 의 마지막 item 을 offset 으로 한번 조회한다.
+        List<T> last = createQuery(firstPageQuery)
+            .setFirstResult(getPage() * getPageSize() - 1)
+            .setMaxResults(1)
+            .getResultList();
+
+        if (!last.isEmpty()) {
+            startAfterValues = extractSortKeyValues(last.get(0));
+        }
+    }
+
+    @Override
+    protected void doClose() throws Exception {
+        if (entityManager != null) {
+            entityManager.close();
+        }
+        startAfterValues = null;
+        previousStartAfterValues = null;
+
+        super.doClose();
+    }
+
+    private boolean isAtEndOfPage() {
+        return getCurrentItemCount() % getPageSize() == 0;
+    }
+
+    private TypedQuery<T> createQuery(String jpql) {
+        TypedQuery<T> query = entityManager.createQuery(jpql, entityClass);
+
+        if (parameterValues != null) {
+            parameterValues.forEach(query::setParameter);
+        }
+
+        return query;
+    }
+
+    private Map<String, Object> extractSortKeyValues(T item) {
+        BeanWrapperImpl wrapper = new BeanWrapperImpl(item);
+        Map<String, Object> values = new LinkedHashMap<>();
+
+        for (String sortKey : sortKeys.keySet()) {
+            values.put(sortKey, wrapper.getPropertyValue(sortKey));
+        }
+
+        return values;
+    }
+
+    private String buildQuery(boolean afterKey) {
+        List<String> conditions = new ArrayList<>();
+
+        if (StringUtils.hasText(whereClause)) {
+            conditions.add("(" + whereClause + ")");
+        }
+        if (afterKey) {
+            conditions.add("(" + buildKeysetCondition() + ")");
+        }
+
+        StringBuilder jpql = new StringBuilder(selectClause);
+
+        if (!conditions.isEmpty()) {
+            jpql.append(" where ").append(String.join(" and ", conditions));
+        }
+
+        List<String> orders = new ArrayList<>();
+        sortKeys.forEach((sortKey, order) ->
+            orders.add(alias + "." + sortKey + (order == Order.DESCENDING ? " desc" : " asc")));
+
+        return jpql.append(" order by ").append(String.join(", ", orders)).toString();
+    }
+
+    /**
+     * (a > :keyset0) or (a = :keyset0 and b > :keyset1) ...
+     */
+    private String buildKeysetCondition() {
+        List<String> sortKeyNames = new ArrayList<>(sortKeys.keySet());
+        List<String> disjunctions = new ArrayList<>();
+
+        for (int i = 0; i < sortKeyNames.size(); i++) {
+            List<String> conjunctions = new ArrayList<>();
+
+            for (int j = 0; j < i; j++) {
+                conjunctions.add(alias + "." + sortKeyNames.get(j) + " = :" + KEY_PARAMETER + j);
+            }
+
+            String sortKey = sortKeyNames.get(i);
+            String operator = sortKeys.get(sortKey) == Order.DESCENDING ? " < :" : " > :";
+            conjunctions.add(alias + "." + sortKey + operator + KEY_PARAMETER + i);
+
+            disjunctions.add("(" + String.join(" and ", conjunctions) + ")");
+        }
+
+        return String.join(" or ", disjunctions);
+    }
+}
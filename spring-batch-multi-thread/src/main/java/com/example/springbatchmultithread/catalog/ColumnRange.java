@@ -0,0 +1,17 @@
+package com.example.springbatchmultithread.catalog;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * 컬럼의 최소 / 최대값과 row 수
+ */
+@Data
+@Builder
+public class ColumnRange {
+
+    private long count;
+    private Long min;
+    private Long max;
+
+}
@@ -0,0 +1,123 @@
+package com.example.springbatchmultithread.catalog;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Partitioner 가 사용하는 컬럼 범위 (MIN / MAX, 분위수 경계) 캐시
+ *
+ * <pre>
+ *      - Job 이 실행될 때마다 MIN / MAX 로 테이블을 읽지 않도록 결과를 캐시한다.
+ *      - 캐시는 ttl 이 지나면 다시 조회하고, 데이터가 바뀌면 invalidate() 로 바로 만료시킨다.
+ *
+ *      ! table / column 이름은 SQL 에 그대로 들어가기 때문에 설정값만 사용해야 한다.
+ * </pre>
+ */
+@Slf4j
+@Component
+public class ColumnRangeCatalog {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final long ttlNanos;
+
+    private final Map<String, CacheEntry> cache = new ConcurrentHashMap<>();
+
+    public ColumnRangeCatalog(DataSource dataSource,
+        @Value("${batch.catalog.ttl-seconds:300}") long ttlSeconds) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+    }
+
+    public ColumnRange getRange(String table, String column) {
+        return get(table + "." + column + ":range",
+            () -> jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) AS CNT, MIN(" + column + ") AS MIN_VALUE, MAX(" + column
+                    + ") AS MAX_VALUE FROM " + table,
+                (rs, rowNum) -> ColumnRange.builder()
+                    .count(rs.getLong("CNT"))
+                    .min(rs.getObject("MIN_VALUE") == null ? null : rs.getLong("MIN_VALUE"))
+                    .max(rs.getObject("MAX_VALUE") == null ? null : rs.getLong("MAX_VALUE"))
+                    .build()));
+    }
+
+    /**
+     * 컬럼 값을 정렬해서 row 수가 같은 buckets 개의 구간으로 나눴을 때 구간별 최대값 (오름차순)
+     * <p>
+     * NTILE 로 테이블을 한번만 읽는다. (H2 1.4.198+, MySQL 8+)
+     */
+    public List<Long> getQuantileUpperBounds(String table, String column, int buckets) {
+        return get(table + "." + column + ":ntile:" + buckets,
+            () -> jdbcTemplate.queryForList(
+                "SELECT MAX(" + column + ") AS UPPER_VALUE FROM (SELECT " + column + ", NTILE("
+                    + buckets + ") OVER (ORDER BY " + column + ") AS BUCKET FROM " + table
+                    + " WHERE " + column + " IS NOT NULL) T GROUP BY BUCKET ORDER BY BUCKET",
+                Long.class));
+    }
+
+    public void invalidate(String table) {
+        cache.keySet().removeIf(key -> key.startsWith(table + "."));
+
+        log.info("statistics of {} are invalidated.", table);
+    }
+
+    /**
+     * 조회는 map 의 lock 밖에서 한다.
+     * <p>
+     * 만료된 entry 를 조회 중인 entry 로 바꾼 thread 만 조회하고, 같은 key 를 동시에 조회한 thread 는 그 결과를 기다린다.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T get(String key, Supplier<T> loader) {
+        long now = System.nanoTime();
+
+        CacheEntry loading = new CacheEntry(now + ttlNanos);
+
+        CacheEntry entry = cache.compute(key, (k, current) -> {
+            if (current != null && current.expiresAt - now > 0) {
+                return current;
+            }
+
+            return loading;
+        });
+
+        if (entry == loading) {
+            try {
+                loading.value.complete(loader.get());
+            } catch (RuntimeException e) {
+                cache.remove(key, loading);
+                loading.value.completeExceptionally(e);
+                throw e;
+            }
+        }
+
+        try {
+            return (T) entry.value.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+
+            throw e;
+        }
+    }
+
+    private static class CacheEntry {
+
+        private final CompletableFuture<Object> value = new CompletableFuture<>();
+        private final long expiresAt;
+
+        private CacheEntry(long expiresAt) {
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.springbatchmultithread.ch02_async;
 
+import com.example.springbatchmultithread.ch02_async.processor.BoundedAsyncItemProcessor;
+import com.example.springbatchmultithread.executor.BatchTaskExecutors;
 import com.example.springbatchmultithread.listener.StopWatchJobListener;
 import com.example.springbatchmultithread.mapper.CustomerRowMapper;
 import com.example.springbatchmultithread.model.Customer;
@@ -14,7 +16,6 @@ import org.springframework.batch.core.Step;
 import org.springframework.batch.core.configuration.annotation.JobBuilderFactory;
 import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
 import org.springframework.batch.core.launch.support.RunIdIncrementer;
-import org.springframework.batch.integration.async.AsyncItemProcessor;
 import org.springframework.batch.integration.async.AsyncItemWriter;
 import org.springframework.batch.item.ItemProcessor;
 import org.springframework.batch.item.ItemWriter;
@@ -23,8 +24,10 @@ import org.springframework.batch.item.database.Order;
 import org.springframework.batch.item.database.builder.JdbcBatchItemWriterBuilder;
 import org.springframework.batch.item.database.builder.JdbcPagingItemReaderBuilder;
 import org.springframework.batch.item.database.support.MySqlPagingQueryProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
-import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 /**
  * AsyncITemProcessor / AsyncItemWriter
@@ -47,6 +50,21 @@ public class AsyncConfiguration {
 
     private final DataSource dataSource;
 
+    @Value("${batch.executor.mode:platform}")
+    private String executorMode;
+
+    /**
+     * item 을 처리하는 Thread 수
+     */
+    @Value("${async.processor.threads:8}")
+    private int processorThreads;
+
+    /**
+     * 동시에 처리중일 수 있는 item 수 (가득 차면 read 가 대기한다)
+     */
+    @Value("${async.processor.window-size:32}")
+    private int processorWindowSize;
+
     @Bean
     public Job batchJob1() {
         return jobBuilderFactory.get("batchJob1")
@@ -85,6 +103,7 @@ public class AsyncConfiguration {
             /*
              * 비동기 실행을 위한 AsyncItemProcessor 설정
              *  - Thread Pool 개수 만큼 Thread 가 생성되어 비동기로 실행
+             *  - 처리중인 item 이 window 개가 되면 read 가 대기한다.
              *  - 내부적으로 실제 ItemProcessor 에게 실행을 위임하고 결과를 Future 에 저장
              */
             .processor(asyncItemProcessor())
@@ -110,14 +129,32 @@ public class AsyncConfiguration {
     @Bean
     public ItemProcessor<Customer, Future<Customer>> asyncItemProcessor() {
 
-        AsyncItemProcessor<Customer, Customer> asyncItemProcessor = new AsyncItemProcessor<>();
+        /*
+         * AsyncItemProcessor 는 SimpleAsyncTaskExecutor 를 사용하면 item 마다 Thread 를 생성하므로
+         * 고정된 Thread 에서 window 개 까지만 동시에 처리하는 BoundedAsyncItemProcessor 를 사용한다.
+         */
+        BoundedAsyncItemProcessor<Customer, Customer> asyncItemProcessor = new BoundedAsyncItemProcessor<>();
         asyncItemProcessor.setDelegate(customItemProcessor()); // 위임할 ItemProcessor 를 넣어준다.
-        // Spring 에서 제공해주는 AsyncTaskExecutor 사용
-        asyncItemProcessor.setTaskExecutor(new SimpleAsyncTaskExecutor());
+        asyncItemProcessor.setTaskExecutor(asyncProcessorExecutor());
+        asyncItemProcessor.setWindowSize(processorWindowSize);
 
         return asyncItemProcessor;
     }
 
+    @Bean
+    public TaskExecutor asyncProcessorExecutor() {
+        // virtual 모드에서는 item 마다 Virtual Thread 를 사용하고 동시 실행 수는 window 가 제한한다.
+        return BatchTaskExecutors.create(executorMode, "async-processor-", -1, () -> {
+            ThreadPoolTaskExecutor taskExecutor = new ThreadPoolTaskExecutor();
+
+            taskExecutor.setCorePoolSize(processorThreads);
+            taskExecutor.setMaxPoolSize(processorThreads);
+            taskExecutor.setThreadNamePrefix("async-processor-");
+
+            return taskExecutor;
+        });
+    }
+
     @Bean
     public JdbcPagingItemReader<Customer> pagingItemReader() {
         Map<String, Order> sortKeys = new HashMap<>();
@@ -0,0 +1,94 @@
+package com.example.springbatchmultithread.ch02_async.processor;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.util.Assert;
+
+/**
+ * 동시에 처리중인 item 수를 제한하는 AsyncItemProcessor
+ *
+ * <pre>
+ *      - AsyncItemProcessor 에 SimpleAsyncTaskExecutor 를 사용하면 item 마다 Thread 가 생성된다.
+ *      - 고정된 크기의 TaskExecutor 에서 실행하고, 처리중인 item 이 window 개가 되면 process 를 호출한 Thread 가 대기한다.
+ *          - chunk 를 읽는 Thread 가 대기하므로 처리가 밀리면 read 도 함께 멈춘다. (backpressure)
+ *      - 반환한 Future 는 입력 순서대로 chunk 에 담기므로 AsyncItemWriter 는 입력 순서대로 결과를 받는다.
+ *      - 위임한 ItemProcessor 의 예외는 AsyncItemWriter 가 Future 에서 꺼내서 다시 던지므로 기존 skip / retry 설정이 그대로 적용된다.
+ *      - @StepScope Bean 을 사용할 수 있도록 작업 Thread 에 StepExecution 을 등록한다.
+ * </pre>
+ */
+public class BoundedAsyncItemProcessor<I, O> implements ItemProcessor<I, Future<O>>, InitializingBean {
+
+    private ItemProcessor<I, O> delegate;
+
+    private TaskExecutor taskExecutor;
+
+    private Semaphore window;
+
+    public void setDelegate(ItemProcessor<I, O> delegate) {
+        this.delegate = delegate;
+    }
+
+    public void setTaskExecutor(TaskExecutor taskExecutor) {
+        this.taskExecutor = taskExecutor;
+    }
+
+    /**
+     * 동시에 처리중일 수 있는 최대 item 수
+     */
+    public void setWindowSize(int windowSize) {
+        Assert.isTrue(windowSize > 0, "windowSize must be greater than zero");
+        this.window = new Semaphore(windowSize);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        Assert.notNull(delegate, "The delegate must be set.");
+        Assert.notNull(taskExecutor, "The taskExecutor must be set.");
+        Assert.notNull(window, "The windowSize must be set.");
+    }
+
+    @Override
+    public Future<O> process(I item) throws Exception {
+        StepExecution stepExecution = getStepExecution();
+
+        FutureTask<O> task = new FutureTask<>(() -> {
+            try {
+                if (stepExecution != null) {
+                    StepSynchronizationManager.register(stepExecution);
+                }
+
+                return delegate.process(item);
+            } finally {
+                if (stepExecution != null) {
+                    StepSynchronizationManager.close();
+                }
+                window.release();
+            }
+        });
+
+        window.acquire();
+
+        try {
+            taskExecutor.execute(task);
+        } catch (RuntimeException e) {
+            // executor 가 작업을 거절한 경우
+            window.release();
+            throw e;
+        }
+
+        return task;
+    }
+
+    private StepExecution getStepExecution() {
+        StepContext context = StepSynchronizationManager.getContext();
+
+        return context != null ? context.getStepExecution() : null;
+    }
+}
@@ -3,9 +3,10 @@ package com.example.springbatchmultithread.ch03_multi_threaded_step;
 import com.example.springbatchmultithread.listener.CustomItemProcessListener;
 import com.example.springbatchmultithread.listener.CustomItemReadListener;
 import com.example.springbatchmultithread.listener.CustomItemWriteListener;
-import com.example.springbatchmultithread.listener.StopWatchJobListener;
+import com.example.springbatchmultithread.listener.StepPhaseProfiler;
 import com.example.springbatchmultithread.mapper.CustomerRowMapper;
 import com.example.springbatchmultithread.model.Customer;
+import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.Map;
 import javax.sql.DataSource;
@@ -16,6 +17,7 @@ import org.springframework.batch.core.Step;
 import org.springframework.batch.core.configuration.annotation.JobBuilderFactory;
 import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
 import org.springframework.batch.core.launch.support.RunIdIncrementer;
+import org.springframework.batch.core.step.builder.SimpleStepBuilder;
 import org.springframework.batch.item.ItemProcessor;
 import org.springframework.batch.item.ItemWriter;
 import org.springframework.batch.item.database.JdbcPagingItemReader;
@@ -58,24 +60,31 @@ public class MultiThreadedStepConfiguration {
         return jobBuilderFactory.get("batchJob1")
             .incrementer(new RunIdIncrementer())
             .start(step1())
-            .listener(new StopWatchJobListener())
+            .listener(stepPhaseProfiler()) // 전체 시간과 Step 별 read / process / write / commit 시간
             .build();
     }
 
     @Bean
     public Step step1() {
-        return stepBuilderFactory.get("step1")
+        SimpleStepBuilder<Customer, Customer> builder = stepBuilderFactory.get("step1")
             .<Customer, Customer>chunk(2)
             .reader(pagingItemReader())
             .listener(new CustomItemReadListener()) // ItemReadListener
             .processor(customItemProcessor())
             .listener(new CustomItemProcessListener()) // ItemProcessListener
             .writer(customItemWriter())
-            .listener(new CustomItemWriteListener()) // ItemWriteListener
-            // SimpleAsyncTaskExecutor 는 Spring 에서 제공하는 비동기 ThreadExecutor
-//            .taskExecutor(new SimpleAsyncTaskExecutor()) // Thread 생성 및 실행을 위한 taskExecutor 설정
-            .taskExecutor(taskExecutor()) // 설정하지 않을 경우 Single Thread 로 실행됨
-            .build();
+            .listener(new CustomItemWriteListener()); // ItemWriteListener
+
+        // SimpleAsyncTaskExecutor 는 Spring 에서 제공하는 비동기 ThreadExecutor
+//        builder.taskExecutor(new SimpleAsyncTaskExecutor()); // Thread 생성 및 실행을 위한 taskExecutor 설정
+        builder.taskExecutor(taskExecutor()); // 설정하지 않을 경우 Single Thread 로 실행됨
+
+        return stepPhaseProfiler().profile(builder).build();
+    }
+
+    @Bean
+    public StepPhaseProfiler stepPhaseProfiler() {
+        return new StepPhaseProfiler(Paths.get("build", "profile"));
     }
 
     @Bean
@@ -0,0 +1,99 @@
+package com.example.springbatchmultithread.ch04_parallel_steps;
+
+import com.example.springbatchmultithread.ch04_parallel_steps.dag.DagJob;
+import com.example.springbatchmultithread.executor.BatchTaskExecutors;
+import com.example.springbatchmultithread.listener.StopWatchJobListener;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.launch.support.RunIdIncrementer;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * DAG 기반 병렬 Step
+ *
+ * <pre>
+ *      - split 은 모든 flow 가 끝나야 다음 단계로 넘어가는 barrier 이다.
+ *      - DagJob 은 Step 마다 선행 Step 을 선언하고, 선행 Step 이 끝나는 즉시 해당 Step 을 실행한다.
+ *
+ *          step1 ─┬─ step2 ── step3
+ *                 └─ step4 ── step5
+ *
+ *      - ParallelStepsConfiguration 의 구성에서는 step5 가 step2, step3 까지 기다리지만 여기서는 step4 만 기다린다.
+ *      - 동시에 실행 가능한 Step 중에서는 이전 실행 이력 기준으로 critical path 가 긴 Step 이 먼저 실행된다.
+ * </pre>
+ */
+@Slf4j
+@RequiredArgsConstructor
+//@Configuration
+public class DagJobConfiguration {
+
+    private final StepBuilderFactory stepBuilderFactory;
+
+    private final JobRepository jobRepository;
+
+    private final JobExplorer jobExplorer;
+
+    @Value("${batch.executor.mode:platform}")
+    private String executorMode;
+
+    @Bean
+    public Job batchJob1() {
+        DagJob job = new DagJob("batchJob1");
+
+        job.setJobRepository(jobRepository);
+        job.setJobParametersIncrementer(new RunIdIncrementer());
+        job.registerJobExecutionListener(new StopWatchJobListener());
+        job.setJobExplorer(jobExplorer); // Step 별 이전 실행 시간 조회
+        job.setTaskExecutor(taskExecutor());
+        job.setMaxConcurrency(2); // 동시에 실행할 Step 수
+
+        job.addStep(step("step1", 500));
+        job.addStep(step("step2", 1000), "step1");
+        job.addStep(step("step3", 1000), "step2");
+        job.addStep(step("step4", 300), "step1");
+        job.addStep(step("step5", 300), "step4");
+
+        return job;
+    }
+
+    @Bean
+    public TaskExecutor taskExecutor() {
+        return BatchTaskExecutors.create(executorMode, "dag-thread-", -1, () -> {
+            ThreadPoolTaskExecutor taskExecutor = new ThreadPoolTaskExecutor();
+
+            taskExecutor.setCorePoolSize(2);
+            taskExecutor.setMaxPoolSize(2);
+            taskExecutor.setThreadNamePrefix("dag-thread-");
+
+            return taskExecutor;
+        });
+    }
+
+    private Step step(String name, int millis) {
+        return stepBuilderFactory.get(name)
+            .tasklet((contribution, chunkContext) -> {
+                log.info("{} has executed on thread {}", name, Thread.currentThread().getName());
+                sleep(millis);
+                return RepeatStatus.FINISHED;
+            })
+            .build();
+    }
+
+    private void sleep(int millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            log.error(e.getMessage());
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.springbatchmultithread.ch04_parallel_steps;
 
 import com.example.springbatchmultithread.ch04_parallel_steps.tasklet.CustomTasklet;
+import com.example.springbatchmultithread.executor.BatchTaskExecutors;
 import com.example.springbatchmultithread.listener.StopWatchJobListener;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -12,6 +13,7 @@ import org.springframework.batch.core.job.flow.Flow;
 import org.springframework.batch.core.launch.support.RunIdIncrementer;
 import org.springframework.batch.core.step.tasklet.Tasklet;
 import org.springframework.batch.core.step.tasklet.TaskletStep;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.task.TaskExecutor;
@@ -33,6 +35,9 @@ public class ParallelStepsConfiguration {
     private final JobBuilderFactory jobBuilderFactory;
     private final StepBuilderFactory stepBuilderFactory;
 
+    @Value("${batch.executor.mode:platform}")
+    private String executorMode;
+
     @Bean
     public Job batchJob1() {
         return jobBuilderFactory.get("batchJob1")
@@ -103,13 +108,16 @@ public class ParallelStepsConfiguration {
 
     @Bean
     public TaskExecutor taskExecutor() {
-        ThreadPoolTaskExecutor taskExecutor = new ThreadPoolTaskExecutor();
+        // flow 수 만큼만 Task 가 생기므로 virtual 모드에서는 따로 제한하지 않는다.
+        return BatchTaskExecutors.create(executorMode, "async-thread-", -1, () -> {
+            ThreadPoolTaskExecutor taskExecutor = new ThreadPoolTaskExecutor();
 
-        taskExecutor.setCorePoolSize(2);
-        taskExecutor.setMaxPoolSize(4);
-        taskExecutor.setThreadNamePrefix("async-thread-");
+            taskExecutor.setCorePoolSize(2);
+            taskExecutor.setMaxPoolSize(4);
+            taskExecutor.setThreadNamePrefix("async-thread-");
 
-        return taskExecutor;
+            return taskExecutor;
+        });
     }
 
     @Bean
@@ -0,0 +1,326 @@
+package com.example.springbatchmultithread.ch04_parallel_steps.dag;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.JobInterruptedException;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.job.AbstractJob;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.util.Assert;
+
+/**
+ * Step 간 선행 관계(DAG)로 실행 순서를 정하는 Job
+ *
+ * <pre>
+ *      - split 은 모든 flow 가 끝나야 다음으로 넘어가므로 한 flow 에만 의존하는 Step 도 나머지 flow 를 기다린다.
+ *      - Step 마다 선행 Step 을 선언하고, 선행 Step 이 모두 COMPLETED 가 되는 즉시 실행한다.
+ *      - 실행 가능한 Step 이 여러개이면 critical path 가 긴 Step 부터 실행한다.
+ *          - critical path = 자신의 예상 실행 시간 + 후행 Step 들 중 가장 긴 critical path
+ *          - 예상 실행 시간은 JobExplorer 로 조회한 최근 실행 이력의 평균이며, 이력이 없으면 defaultDurationMillis 를 사용한다.
+ *      - 동시에 실행되는 Step 은 maxConcurrency 를 넘지 않는다.
+ *      - Step 이 실패하면 새로운 Step 은 실행하지 않고 실행중인 Step 이 끝나기를 기다린 후 Job 을 실패 처리한다.
+ *          - TaskExecutor 가 Step 실행을 거절한 경우도 Step 실패로 본다.
+ *      - Step 실행은 AbstractJob 의 StepHandler 를 사용하므로 재시작 시 COMPLETED 된 Step 은 다시 실행되지 않는다.
+ * </pre>
+ */
+@Slf4j
+public class DagJob extends AbstractJob {
+
+    private final Map<String, Step> steps = new LinkedHashMap<>();
+
+    private final Map<String, List<String>> dependencies = new LinkedHashMap<>();
+
+    private TaskExecutor taskExecutor;
+
+    private JobExplorer jobExplorer;
+
+    private int maxConcurrency = 1;
+
+    private int historySize = 10;
+
+    private long defaultDurationMillis = 1_000;
+
+    public DagJob(String name) {
+        super(name);
+    }
+
+    /**
+     * @param dependsOn 먼저 완료되어야 하는 Step 의 이름
+     */
+    public void addStep(Step step, String... dependsOn) {
+        Assert.isTrue(!steps.containsKey(step.getName()), "Duplicate step name: " + step.getName());
+
+        steps.put(step.getName(), step);
+        dependencies.put(step.getName(), List.of(dependsOn));
+    }
+
+    public void setTaskExecutor(TaskExecutor taskExecutor) {
+        this.taskExecutor = taskExecutor;
+    }
+
+    /**
+     * 설정하지 않으면 모든 Step 의 예상 실행 시간을 defaultDurationMillis 로 본다.
+     */
+    public void setJobExplorer(JobExplorer jobExplorer) {
+        this.jobExplorer = jobExplorer;
+    }
+
+    public void setMaxConcurrency(int maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    /**
+     * 예상 실행 시간 계산에 사용할 최근 JobInstance 수
+     */
+    public void setHistorySize(int historySize) {
+        this.historySize = historySize;
+    }
+
+    public void setDefaultDurationMillis(long defaultDurationMillis) {
+        this.defaultDurationMillis = defaultDurationMillis;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        super.afterPropertiesSet();
+        Assert.notNull(taskExecutor, "TaskExecutor must be set");
+        Assert.isTrue(maxConcurrency > 0, "maxConcurrency must be greater than zero");
+        Assert.notEmpty(steps, "At least one step is required");
+
+        dependencies.forEach((name, dependsOn) -> dependsOn.forEach(dependency ->
+            Assert.isTrue(steps.containsKey(dependency), name + " depends on unknown step: " + dependency)));
+
+        topologicalOrder(); // 순환 검사
+    }
+
+    @Override
+    public Step getStep(String stepName) {
+        return steps.get(stepName);
+    }
+
+    @Override
+    public Collection<String> getStepNames() {
+        return steps.keySet();
+    }
+
+    @Override
+    protected void doExecute(JobExecution execution) throws JobInterruptedException {
+        Map<String, Long> criticalPaths = criticalPaths(estimateDurations());
+
+        Map<String, List<String>> successors = new HashMap<>();
+        Map<String, Integer> remaining = new HashMap<>();
+
+        dependencies.forEach((name, dependsOn) -> {
+            remaining.put(name, dependsOn.size());
+            dependsOn.forEach(dependency ->
+                successors.computeIfAbsent(dependency, key -> new ArrayList<>()).add(name));
+        });
+
+        PriorityQueue<String> ready = new PriorityQueue<>(
+            Comparator.comparingLong((String name) -> criticalPaths.get(name)).reversed());
+        remaining.forEach((name, count) -> {
+            if (count == 0) {
+                ready.add(name);
+            }
+        });
+
+        BlockingQueue<StepResult> completions = new LinkedBlockingQueue<>();
+        int running = 0;
+        StepExecution failed = null;
+        JobInterruptedException interrupted = null;
+        Throwable error = null;
+        StepExecution last = null;
+
+        while (true) {
+            boolean stopLaunching = failed != null || interrupted != null || error != null;
+
+            while (!stopLaunching && running < maxConcurrency && !ready.isEmpty()) {
+                String name = ready.poll();
+                log.info("launching {} (critical path {}ms)", name, criticalPaths.get(name));
+
+                try {
+                    taskExecutor.execute(() -> completions.add(run(steps.get(name), execution)));
+                } catch (TaskRejectedException e) {
+                    log.error("{} rejected", name, e);
+                    error = e;
+                    break;
+                }
+                running++;
+            }
+
+            if (running == 0) {
+                break;
+            }
+
+            StepResult result;
+            try {
+                result = completions.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new JobInterruptedException("Interrupted while waiting for steps to complete");
+            }
+            running--;
+
+            if (result.interrupted != null) {
+                interrupted = result.interrupted;
+                continue;
+            }
+            if (result.failure != null) {
+                log.error("{} failed", result.stepName, result.failure);
+                error = result.failure;
+                continue;
+            }
+
+            last = result.stepExecution;
+
+            if (last.getStatus() != BatchStatus.COMPLETED) {
+                if (failed == null) {
+                    failed = last;
+                }
+                continue;
+            }
+
+            for (String successor : successors.getOrDefault(result.stepName, List.of())) {
+                if (remaining.merge(successor, -1, Integer::sum) == 0) {
+                    ready.add(successor);
+                }
+            }
+        }
+
+        // 실행중이던 Step 이 모두 끝난 후에 결과를 반영한다.
+        if (interrupted != null) {
+            throw interrupted;
+        }
+        if (error != null) {
+            throw new IllegalStateException("Step execution failed in job " + getName(), error);
+        }
+
+        StepExecution result = failed != null ? failed : last;
+        if (result != null) {
+            execution.upgradeStatus(result.getStatus());
+            execution.setExitStatus(result.getExitStatus());
+        }
+    }
+
+    private StepResult run(Step step, JobExecution execution) {
+        try {
+            return new StepResult(step.getName(), handleStep(step, execution), null, null);
+        } catch (JobInterruptedException e) {
+            return new StepResult(step.getName(), null, null, e);
+        } catch (Throwable e) {
+            return new StepResult(step.getName(), null, e, null);
+        }
+    }
+
+    /**
+     * 최근 실행 이력에서 COMPLETED 된 StepExecution 의 평균 실행 시간
+     */
+    private Map<String, Long> estimateDurations() {
+        Map<String, long[]> totals = new HashMap<>();
+
+        if (jobExplorer != null) {
+            for (JobInstance jobInstance : jobExplorer.getJobInstances(getName(), 0, historySize)) {
+                for (JobExecution jobExecution : jobExplorer.getJobExecutions(jobInstance)) {
+                    for (StepExecution stepExecution : jobExecution.getStepExecutions()) {
+                        if (stepExecution.getStatus() != BatchStatus.COMPLETED
+                            || stepExecution.getEndTime() == null) {
+                            continue;
+                        }
+
+                        long[] total = totals.computeIfAbsent(stepExecution.getStepName(), key -> new long[2]);
+                        total[0] += stepExecution.getEndTime().getTime() - stepExecution.getStartTime().getTime();
+                        total[1]++;
+                    }
+                }
+            }
+        }
+
+        Map<String, Long> durations = new HashMap<>();
+        for (String name : steps.keySet()) {
+            long[] total = totals.get(name);
+            durations.put(name, total != null ? total[0] / total[1] : defaultDurationMillis);
+        }
+
+        return durations;
+    }
+
+    private Map<String, Long> criticalPaths(Map<String, Long> durations) {
+        Map<String, Long> criticalPaths = new HashMap<>();
+        List<String> order = topologicalOrder();
+
+        // 후행 Step 부터 계산
+        for (int i = order.size() - 1; i >= 0; i--) {
+            String name = order.get(i);
+            long longestSuccessor = 0;
+
+            for (Map.Entry<String, List<String>> entry : dependencies.entrySet()) {
+                if (entry.getValue().contains(name)) {
+                    longestSuccessor = Math.max(longestSuccessor, criticalPaths.get(entry.getKey()));
+                }
+            }
+
+            criticalPaths.put(name, durations.get(name) + longestSuccessor);
+        }
+
+        return criticalPaths;
+    }
+
+    private List<String> topologicalOrder() {
+        Map<String, Integer> remaining = new HashMap<>();
+        dependencies.forEach((name, dependsOn) -> remaining.put(name, dependsOn.size()));
+
+        List<String> order = new ArrayList<>();
+        List<String> ready = new ArrayList<>();
+        remaining.forEach((name, count) -> {
+            if (count == 0) {
+                ready.add(name);
+            }
+        });
+
+        while (!ready.isEmpty()) {
+            String name = ready.remove(ready.size() - 1);
+            order.add(name);
+
+            dependencies.forEach((successor, dependsOn) -> {
+                if (dependsOn.contains(name) && remaining.merge(successor, -1, Integer::sum) == 0) {
+                    ready.add(successor);
+                }
+            });
+        }
+
+        Assert.state(order.size() == steps.size(), "Step dependencies contain a cycle: " + getName());
+
+        return order;
+    }
+
+    private static class StepResult {
+
+        private final String stepName;
+        private final StepExecution stepExecution;
+        private final Throwable failure;
+        private final JobInterruptedException interrupted;
+
+        private StepResult(String stepName, StepExecution stepExecution, Throwable failure,
+            JobInterruptedException interrupted) {
+            this.stepName = stepName;
+            this.stepExecution = stepExecution;
+            this.failure = failure;
+            this.interrupted = interrupted;
+        }
+    }
+}
@@ -1,8 +1,13 @@
 package com.example.springbatchmultithread.ch05_partitioning;
 
-import com.example.springbatchmultithread.ch05_partitioning.partitioner.ColumnRangePartitioner;
+import com.example.springbatchmultithread.catalog.ColumnRangeCatalog;
+import com.example.springbatchmultithread.ch05_partitioning.handler.WorkStealingPartitionHandler;
+import com.example.springbatchmultithread.ch05_partitioning.partitioner.QuantileColumnRangePartitioner;
+import com.example.springbatchmultithread.executor.BatchTaskExecutors;
+import com.example.springbatchmultithread.listener.StepPhaseProfiler;
 import com.example.springbatchmultithread.mapper.CustomerRowMapper;
 import com.example.springbatchmultithread.model.Customer;
+import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.Map;
 import javax.sql.DataSource;
@@ -14,7 +19,9 @@ import org.springframework.batch.core.configuration.annotation.JobBuilderFactory
 import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
 import org.springframework.batch.core.configuration.annotation.StepScope;
 import org.springframework.batch.core.launch.support.RunIdIncrementer;
+import org.springframework.batch.core.partition.PartitionHandler;
 import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.core.step.builder.SimpleStepBuilder;
 import org.springframework.batch.item.ItemProcessor;
 import org.springframework.batch.item.ItemWriter;
 import org.springframework.batch.item.database.JdbcPagingItemReader;
@@ -72,11 +79,23 @@ public class PartitioningV1Configuration {
 
     private final DataSource dataSource;
 
+    private final ColumnRangeCatalog columnRangeCatalog;
+
+    @Value("${batch.executor.mode:platform}")
+    private String executorMode;
+
+    /**
+     * virtual 모드에서는 Thread 수 대신 DB connection 수 만큼만 동시에 실행한다.
+     */
+    @Value("${spring.datasource.hikari.maximum-pool-size:10}")
+    private int maxConnections;
+
     @Bean
     public Job batchJob1() {
         return jobBuilderFactory.get("batchJob1")
             .incrementer(new RunIdIncrementer())
             .start(masterStep())
+            .listener(stepPhaseProfiler()) // partition 별 read / write / commit 시간
             .build();
     }
 
@@ -85,46 +104,62 @@ public class PartitioningV1Configuration {
         return stepBuilderFactory.get("masterStep")
             // PartitionStep 생성을 위한 PartitionStepBuilder 가 생성되고 Partitioner 를 설정
             .partitioner(slaveStep().getName(), partitioner())
-            .step(slaveStep()) // Slave 역할을 하는 Step 을 설정 : TaskletStep, FlowStep 등이 올 수 있음
-            .gridSize(4) // Partition 구분을 위한 값 설정 : 몇개의 Partition 으로 나눌 것인지 사용됨
-            .taskExecutor(taskExecutor())
+            // gridSize 를 Thread 수보다 크게 나누고 쉬는 Thread 가 남은 partition 을 가져가도록 한다.
+            .partitionHandler(partitionHandler())
             .build();
     }
 
+    @Bean
+    public PartitionHandler partitionHandler() {
+        WorkStealingPartitionHandler partitionHandler = new WorkStealingPartitionHandler();
+
+        partitionHandler.setStep(slaveStep()); // Slave 역할을 하는 Step 을 설정 : TaskletStep, FlowStep 등이 올 수 있음
+        partitionHandler.setGridSize(32); // Partition 구분을 위한 값 설정 : 몇개의 Partition 으로 나눌 것인지 사용됨
+        partitionHandler.setConcurrency(4); // 동시에 실행할 worker 수
+        partitionHandler.setTaskExecutor(taskExecutor());
+
+        return partitionHandler;
+    }
+
     @Bean
     public Step slaveStep() {
-        return stepBuilderFactory.get("slaveStep")
+        SimpleStepBuilder<Customer, Customer> builder = stepBuilderFactory.get("slaveStep")
             .<Customer, Customer>chunk(100)
             /*
              ! @StepScope 를 선언할 경우 Proxy 객체가 생성되기 때문에, Compile Error 를 방지하기 위해 parameter 에 null 을 넣어준다.
              ! 해당 parameter 는 실제 Bean 생성된 후 선언한 값이 들어간다.
              */
             .reader(pagingItemReader(null, null))
-            .writer(customItemWriter())
-            .build();
+            .writer(customItemWriter());
+
+        return stepPhaseProfiler().profile(builder).build();
     }
 
     @Bean
-    public Partitioner partitioner() {
-
-        ColumnRangePartitioner columnRangePartitioner = new ColumnRangePartitioner();
+    public StepPhaseProfiler stepPhaseProfiler() {
+        return new StepPhaseProfiler(Paths.get("build", "profile"));
+    }
 
-        columnRangePartitioner.setColumn("id"); // id 를 구분자로 하여 partitioning
-        columnRangePartitioner.setDataSource(dataSource);
-        columnRangePartitioner.setTable("customer"); // source table
+    @Bean
+    public Partitioner partitioner() {
 
-        return columnRangePartitioner;
+        // id 가 몰려 있어도 partition 마다 row 수가 비슷하도록 분위수로 경계값을 정한다.
+        // 값의 폭으로 나누려면 ColumnRangePartitioner 를 사용한다.
+        return new QuantileColumnRangePartitioner(columnRangeCatalog, "customer", "id");
     }
 
     @Bean
     public TaskExecutor taskExecutor() {
-        ThreadPoolTaskExecutor taskExecutor = new ThreadPoolTaskExecutor();
+        return BatchTaskExecutors.create(executorMode, "async-thread-", maxConnections, () -> {
+            ThreadPoolTaskExecutor taskExecutor = new ThreadPoolTaskExecutor();
 
-        taskExecutor.setCorePoolSize(2);
-        taskExecutor.setMaxPoolSize(4);
-        taskExecutor.setThreadNamePrefix("async-thread-");
+            // worker 는 Queue 가 빌 때까지 Thread 를 점유하므로 concurrency 만큼 core Thread 를 둔다.
+            taskExecutor.setCorePoolSize(4);
+            taskExecutor.setMaxPoolSize(4);
+            taskExecutor.setThreadNamePrefix("async-thread-");
 
-        return taskExecutor;
+            return taskExecutor;
+        });
     }
 
     @Bean
@@ -0,0 +1,151 @@
+package com.example.springbatchmultithread.ch05_partitioning.handler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.partition.support.AbstractPartitionHandler;
+import org.springframework.batch.core.step.StepHolder;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.util.Assert;
+
+/**
+ * 작은 partition 을 공유 Queue 에 넣고 쉬는 Thread 가 가져가서 실행하는 PartitionHandler
+ *
+ * <pre>
+ *      - TaskExecutorPartitionHandler 는 partition 하나당 Task 를 하나 만들기 때문에 gridSize 를 Thread 수에 맞추면
+ *        가장 느린 partition 이 끝날 때까지 MasterStep 이 끝나지 않는다.
+ *      - gridSize 를 Thread 수보다 충분히 크게 잡고 concurrency 만큼의 worker 만 실행한다.
+ *      - 각 worker 는 Queue 가 빌 때까지 partition 을 하나씩 꺼내서 실행하므로 먼저 끝난 worker 가 남은 partition 을 가져간다.
+ *      - partition 마다 StepExecution 이 따로 있으므로 재시작 시 실패한 partition 만 다시 실행되고,
+ *        PartitionStep 의 StepExecutionAggregator 도 그대로 동작한다.
+ *      - TaskExecutor 의 Thread 수는 concurrency 이상이어야 worker 가 동시에 실행된다.
+ *      - worker 가 예외로 끝나면 Queue 에 남은 partition 은 실행하지 않고 FAILED 로 만든다.
+ *        다른 worker 가 실행 중인 partition 이 끝날 때까지 기다린 뒤 첫번째 예외를 던진다.
+ * </pre>
+ */
+@Slf4j
+public class WorkStealingPartitionHandler extends AbstractPartitionHandler implements StepHolder,
+    InitializingBean {
+
+    private TaskExecutor taskExecutor;
+
+    private Step step;
+
+    private int concurrency = 1;
+
+    public void setTaskExecutor(TaskExecutor taskExecutor) {
+        this.taskExecutor = taskExecutor;
+    }
+
+    public void setStep(Step step) {
+        this.step = step;
+    }
+
+    /**
+     * 동시에 partition 을 실행하는 worker 수
+     */
+    public void setConcurrency(int concurrency) {
+        this.concurrency = concurrency;
+    }
+
+    @Override
+    public Step getStep() {
+        return step;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        Assert.notNull(taskExecutor, "A TaskExecutor must be provided");
+        Assert.notNull(step, "A Step must be provided");
+        Assert.isTrue(concurrency > 0, "concurrency must be greater than zero");
+    }
+
+    @Override
+    protected Set<StepExecution> doHandle(StepExecution managerStepExecution,
+        Set<StepExecution> partitionStepExecutions) throws Exception {
+
+        Queue<StepExecution> remaining = new ConcurrentLinkedQueue<>(partitionStepExecutions);
+        int workers = Math.min(concurrency, partitionStepExecutions.size());
+        List<FutureTask<Integer>> tasks = new ArrayList<>(workers);
+
+        for (int i = 0; i < workers; i++) {
+            FutureTask<Integer> task = new FutureTask<>(() -> steal(remaining));
+
+            try {
+                taskExecutor.execute(task);
+                tasks.add(task);
+            } catch (TaskRejectedException e) {
+                log.warn("worker rejected. [{}/{}]", i + 1, workers);
+
+                if (tasks.isEmpty() && i == workers - 1) {
+                    failRemaining(remaining, e);
+                }
+            }
+        }
+
+        Exception failure = null;
+
+        for (FutureTask<Integer> task : tasks) {
+            try {
+                task.get();
+            } catch (ExecutionException e) {
+                Exception cause = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+
+                if (failure == null) {
+                    failure = cause;
+                } else {
+                    failure.addSuppressed(cause);
+                }
+            }
+        }
+
+        if (failure != null) {
+            failRemaining(remaining, failure);
+            throw failure;
+        }
+
+        return partitionStepExecutions;
+    }
+
+    /**
+     * Queue 가 빌 때까지 partition 을 꺼내서 실행한다.
+     */
+    private int steal(Queue<StepExecution> remaining) throws Exception {
+        int executed = 0;
+        StepExecution stepExecution;
+
+        while ((stepExecution = remaining.poll()) != null) {
+            try {
+                step.execute(stepExecution);
+            } catch (Exception e) {
+                // 다른 worker 가 남은 partition 을 더 가져가지 않도록 한다.
+                failRemaining(remaining, e);
+                throw e;
+            }
+            executed++;
+        }
+
+        log.debug("{} partitions executed by {}", executed, Thread.currentThread().getName());
+
+        return executed;
+    }
+
+    private void failRemaining(Queue<StepExecution> remaining, Exception e) {
+        StepExecution stepExecution;
+
+        while ((stepExecution = remaining.poll()) != null) {
+            stepExecution.setStatus(BatchStatus.FAILED);
+            stepExecution.addFailureException(e);
+        }
+    }
+}
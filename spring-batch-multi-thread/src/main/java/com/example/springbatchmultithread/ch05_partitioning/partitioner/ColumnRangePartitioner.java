@@ -1,5 +1,7 @@
 package com.example.springbatchmultithread.ch05_partitioning.partitioner;
 
+import com.example.springbatchmultithread.catalog.ColumnRange;
+import com.example.springbatchmultithread.catalog.ColumnRangeCatalog;
 import java.util.HashMap;
 import java.util.Map;
 import javax.sql.DataSource;
@@ -10,6 +12,8 @@ import org.springframework.jdbc.core.JdbcTemplate;
 
 /**
  * 예제를 위한 spring-batch-samples 의 ColumnRangePartitioner 를 사용함
+ * <p>
+ * ColumnRangeCatalog 가 설정되면 MIN / MAX 를 매번 조회하지 않고 캐시된 값을 사용한다.
  */
 public class ColumnRangePartitioner implements Partitioner {
 
@@ -19,6 +23,8 @@ public class ColumnRangePartitioner implements Partitioner {
 
     private String column;
 
+    private ColumnRangeCatalog catalog;
+
     /**
      * The name of the SQL table the data are in.
      *
@@ -46,6 +52,15 @@ public class ColumnRangePartitioner implements Partitioner {
         jdbcTemplate = new JdbcTemplate(dataSource);
     }
 
+    /**
+     * The catalog caching the MIN / MAX of the column.
+     *
+     * @param catalog a {@link ColumnRangeCatalog}
+     */
+    public void setCatalog(ColumnRangeCatalog catalog) {
+        this.catalog = catalog;
+    }
+
     /**
      * Partition a database table assuming that the data in the column specified are uniformly
      * distributed. The execution context values will have keys
@@ -56,29 +71,54 @@ public class ColumnRangePartitioner implements Partitioner {
      */
     @Override
     public Map<String, ExecutionContext> partition(int gridSize) {
-        int min = jdbcTemplate.queryForObject("SELECT MIN(" + column + ") from " + table,
-            Integer.class);
-        int max = jdbcTemplate.queryForObject("SELECT MAX(" + column + ") from " + table,
-            Integer.class);
-        int targetSize = (max - min) / gridSize + 1;
+        long min;
+        long max;
+
+        if (catalog != null) {
+            ColumnRange range = catalog.getRange(table, column);
+
+            if (range.getMin() == null) {
+                return new HashMap<>();
+            }
+
+            min = range.getMin();
+            max = range.getMax();
+        } else {
+            Long minValue = jdbcTemplate.queryForObject("SELECT MIN(" + column + ") from " + table,
+                Long.class);
+            Long maxValue = jdbcTemplate.queryForObject("SELECT MAX(" + column + ") from " + table,
+                Long.class);
+
+            if (minValue == null) {
+                return new HashMap<>();
+            }
+
+            min = minValue;
+            max = maxValue;
+        }
+        // max - min 이 long 범위를 넘을 수 있으므로 나눈 후에 더한다.
+        long targetSize = max / gridSize - min / gridSize + 1;
 
         Map<String, ExecutionContext> result = new HashMap<>();
         int number = 0;
-        int start = min;
-        int end = start + targetSize - 1;
+        long start = min;
+
+        while (true) {
+            // max >= start 이므로 unsigned 로 비교하면 max - start 가 넘쳐도 정확하다.
+            long end = Long.compareUnsigned(max - start, targetSize) < 0 ? max : start + targetSize - 1;
 
-        while (start <= max) {
             ExecutionContext value = new ExecutionContext();
             result.put("partition" + number, value);
 
-            if (end >= max) {
-                end = max;
-            }
-            value.putInt("minValue", start);
-            value.putInt("maxValue", end);
-            start += targetSize;
-            end += targetSize;
+            value.putLong("minValue", start);
+            value.putLong("maxValue", end);
             number++;
+
+            if (end == max) {
+                break;
+            }
+
+            start = end + 1;
         }
 
         return result;
@@ -0,0 +1,68 @@
+package com.example.springbatchmultithread.ch05_partitioning.partitioner;
+
+import com.example.springbatchmultithread.catalog.ColumnRangeCatalog;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.item.ExecutionContext;
+
+/**
+ * 실제 row 분포의 분위수로 경계값을 정하는 Partitioner
+ *
+ * <pre>
+ *      - ColumnRangePartitioner 는 MIN ~ MAX 를 값의 폭으로 나누기 때문에 key 가 한쪽에 몰려 있으면 partition 마다 row 수가 크게 달라진다.
+ *      - NTILE 로 정렬된 key 를 row 수가 같은 gridSize 개의 구간으로 나누고, 구간별 최대값을 maxValue 로 사용한다.
+ *      - 같은 key 가 두 구간에 걸치면 앞 구간에 포함시키고 뒤 구간은 합쳐지므로 partition 수가 gridSize 보다 적을 수 있다.
+ *      - 경계값은 ColumnRangeCatalog 에 캐시되므로 같은 gridSize 로 다시 실행하면 테이블을 읽지 않는다.
+ *          - 첫번째 partition 은 Long.MIN_VALUE 부터, 마지막 partition 은 Long.MAX_VALUE 까지 읽는다.
+ *          - 캐시된 이후에 범위 밖의 key 가 추가되어도 빠지는 row 없이 양 끝 partition 이 조금 커질 뿐이다.
+ *      - minValue / maxValue 는 long 으로 저장되며 양 끝을 포함한다.
+ * </pre>
+ */
+@RequiredArgsConstructor
+public class QuantileColumnRangePartitioner implements Partitioner {
+
+    private final ColumnRangeCatalog catalog;
+
+    private final String table;
+
+    private final String column;
+
+    @Override
+    public Map<String, ExecutionContext> partition(int gridSize) {
+        List<Long> upperBounds = catalog.getQuantileUpperBounds(table, column, gridSize);
+
+        Map<String, ExecutionContext> result = new HashMap<>();
+
+        int number = 0;
+        long start = Long.MIN_VALUE;
+
+        // 캐시된 경계가 없으면 (빈 테이블) 전체를 하나의 partition 으로 읽는다.
+        int count = Math.max(1, upperBounds.size());
+
+        for (int i = 0; i < count; i++) {
+            long upperBound = i < count - 1 ? upperBounds.get(i) : Long.MAX_VALUE;
+
+            if (upperBound < start) {
+                // 앞 구간에 이미 포함된 key
+                continue;
+            }
+
+            ExecutionContext value = new ExecutionContext();
+            value.putLong("minValue", start);
+            value.putLong("maxValue", upperBound);
+            result.put("partition" + number, value);
+            number++;
+
+            if (upperBound == Long.MAX_VALUE) {
+                break;
+            }
+
+            start = upperBound + 1;
+        }
+
+        return result;
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.springbatchmultithread.ch06_synchronizedItemStreamReader;
 
+import com.example.springbatchmultithread.ch06_synchronizedItemStreamReader.reader.PrefetchingItemStreamReader;
 import com.example.springbatchmultithread.mapper.CustomerRowMapper;
 import com.example.springbatchmultithread.model.Customer;
 import javax.sql.DataSource;
@@ -16,8 +17,6 @@ import org.springframework.batch.item.ItemWriter;
 import org.springframework.batch.item.database.JdbcCursorItemReader;
 import org.springframework.batch.item.database.builder.JdbcBatchItemWriterBuilder;
 import org.springframework.batch.item.database.builder.JdbcCursorItemReaderBuilder;
-import org.springframework.batch.item.support.SynchronizedItemStreamReader;
-import org.springframework.batch.item.support.builder.SynchronizedItemStreamReaderBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.task.TaskExecutor;
@@ -32,6 +31,10 @@ import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
  *      - Spring Batch 4.0 부터 지원
  *
  *      - SynchronizedItemStreamReader 는 Thread-safe 를 위한 동기화 처리를 해주고 데이터 처리는 ItemReader 에게 위임한다.
+ *
+ *      - PrefetchingItemStreamReader
+ *          - 하나의 Thread 만 delegate 를 읽어서 buffer 에 채우고, chunk Thread 들은 lock 없이 buffer 에서 가져간다.
+ *          - Thread 가 많아져도 read 가 하나의 monitor 에서 대기하지 않는다.
  * </pre>
  */
 @Slf4j
@@ -57,6 +60,7 @@ public class SynchronizedItemStreamReaderConfiguration {
         return stepBuilderFactory.get("step1")
             .<Customer, Customer>chunk(2)
             .reader(customItemReader())
+            .listener(customItemReader()) // rollback 된 chunk 의 item 을 commit 된 것으로 기록하지 않도록 ChunkListener 로 등록
             .listener(new ItemReadListener<>() {
                 @Override
                 public void beforeRead() {
@@ -94,7 +98,7 @@ public class SynchronizedItemStreamReaderConfiguration {
 
     @Bean
     @StepScope
-    public SynchronizedItemStreamReader<Customer> customItemReader() {
+    public PrefetchingItemStreamReader<Customer> customItemReader() {
         /*
          ! Not Thread-safe ItemReader
 
@@ -114,14 +118,23 @@ public class SynchronizedItemStreamReaderConfiguration {
         JdbcCursorItemReader<Customer> cursorItemReader = new JdbcCursorItemReaderBuilder<Customer>()
             .name("jdbc-cursor-reader")
             .dataSource(dataSource)
-            .fetchSize(2)
+            .fetchSize(500) // producer 하나가 읽으므로 한번에 충분히 가져온다.
             .rowMapper(new CustomerRowMapper())
-            .sql("select id, first_name, last_name, birth_date from customer")
+            .sql("select id, first_name, last_name, birth_date from customer order by id")
             .build();
 
-        return new SynchronizedItemStreamReaderBuilder<Customer>()
-            .delegate(cursorItemReader)
-            .build();
+//        return new SynchronizedItemStreamReaderBuilder<Customer>()
+//            .delegate(cursorItemReader)
+//            .build();
+
+        /*
+         * 미리 읽어둔 item 을 lock 없이 나누어 가지는 ItemReader
+         */
+        PrefetchingItemStreamReader<Customer> prefetchingItemReader = new PrefetchingItemStreamReader<>(
+            cursorItemReader, 1024);
+        prefetchingItemReader.setName("prefetching-reader");
+
+        return prefetchingItemReader;
     }
 
     @Bean
@@ -0,0 +1,250 @@
+package com.example.springbatchmultithread.ch06_synchronizedItemStreamReader.reader;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.support.ItemStreamSupport;
+import org.springframework.util.Assert;
+
+/**
+ * 하나의 producer Thread 가 미리 읽어둔 item 을 여러 Thread 가 lock 없이 가져가는 ItemReader
+ *
+ * <pre>
+ *      - SynchronizedItemStreamReader 는 모든 read 가 하나의 monitor 를 잡은 채로 ResultSet I/O 를 수행한다.
+ *      - producer Thread 가 delegate 를 읽어서 크기가 고정된 ring buffer 에 넣고, chunk Thread 는 CAS 로 다음 item 을 가져간다.
+ *          - buffer 가 가득 차면 producer 가, 비어 있으면 chunk Thread 가 잠시 대기한다.
+ *      - delegate 는 producer Thread 만 사용하므로 Thread-safe 하지 않은 reader 를 그대로 사용할 수 있다.
+ *
+ *      - 재시작
+ *          - delegate 의 read.count 는 producer 가 미리 읽은 위치이므로 저장하지 않는다.
+ *          - item 마다 읽은 순번을 매기고 chunk 가 commit 될 때(update) 해당 Thread 가 읽은 순번을 commit 된 것으로 기록한다.
+ *          - 앞의 모든 item 이 commit 된 위치(low-water mark)를 저장하고, 재시작하면 그 만큼 건너뛰고 다시 읽는다.
+ *          - low-water mark 이후에 이미 commit 된 item 은 다시 처리되므로 writer 는 중복 처리에 안전해야 한다.
+ *          - chunk 가 rollback 되면 (afterChunkError) 그 Thread 가 읽은 순번을 버려서 commit 된 것으로 기록하지 않는다.
+ *              - 그래서 step 의 ChunkListener 로 등록해야 하고, 실패한 chunk 를 다시 처리하는 faultTolerant step 에는 사용하지 않는다.
+ * </pre>
+ */
+@Slf4j
+public class PrefetchingItemStreamReader<T> extends ItemStreamSupport implements ItemStreamReader<T>,
+    ChunkListener {
+
+    private static final String COMMITTED_COUNT = "committed.count";
+
+    private static final long WAIT_NANOS = 50_000;
+
+    private static final int SPIN_TRIES = 100;
+
+    private final ItemStreamReader<T> delegate;
+
+    private final int capacity;
+
+    private final int mask;
+
+    private AtomicReferenceArray<T> buffer;
+
+    /**
+     * 다음에 가져갈 순번 (consumer 들이 CAS 로 증가)
+     */
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * 다음에 채울 순번 (producer 만 증가)
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    private volatile boolean exhausted;
+
+    private volatile Exception failure;
+
+    private volatile boolean running;
+
+    private Thread producer;
+
+    private String name = "prefetching-reader";
+
+    private final ThreadLocal<List<Long>> readInChunk = ThreadLocal.withInitial(ArrayList::new);
+
+    private final TreeSet<Long> committedAhead = new TreeSet<>();
+
+    private long committedCount;
+
+    /**
+     * @param capacity 2 의 거듭제곱으로 올림된다.
+     */
+    public PrefetchingItemStreamReader(ItemStreamReader<T> delegate, int capacity) {
+        Assert.notNull(delegate, "The delegate must be set.");
+        Assert.isTrue(capacity > 0, "capacity must be greater than zero");
+
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+
+        this.delegate = delegate;
+        this.capacity = size;
+        this.mask = size - 1;
+    }
+
+    @Override
+    public void setName(String name) {
+        super.setName(name);
+        this.name = name;
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        long skip = executionContext.getLong(getExecutionContextKey(COMMITTED_COUNT), 0L);
+
+        // delegate 의 저장된 위치는 사용하지 않고 commit 된 위치까지 직접 건너뛴다.
+        delegate.open(new ExecutionContext());
+
+        try {
+            for (long i = 0; i < skip && delegate.read() != null; i++) {
+                // skip
+            }
+        } catch (Exception e) {
+            throw new ItemStreamException("Unable to skip to the committed position " + skip, e);
+        }
+
+        buffer = new AtomicReferenceArray<>(capacity);
+        head.set(skip);
+        tail.set(skip);
+        committedCount = skip;
+        committedAhead.clear();
+        exhausted = false;
+        failure = null;
+        running = true;
+
+        producer = new Thread(this::produce, name + "-producer");
+        producer.setDaemon(true);
+        producer.start();
+    }
+
+    @Override
+    public T read() throws Exception {
+        int tries = 0;
+
+        while (true) {
+            long current = head.get();
+
+            if (current < tail.get()) {
+                T item = buffer.get((int) (current & mask));
+
+                // 다른 Thread 가 먼저 가져가지 않았을 때만 사용한다.
+                if (head.compareAndSet(current, current + 1)) {
+                    readInChunk.get().add(current);
+                    return item;
+                }
+                continue;
+            }
+
+            if (exhausted) {
+                // exhausted 를 확인하기 전에 마지막 item 이 채워졌을 수 있다.
+                if (head.get() < tail.get()) {
+                    continue;
+                }
+                if (failure != null) {
+                    throw failure;
+                }
+                return null;
+            }
+
+            tries = idle(tries);
+        }
+    }
+
+    @Override
+    public synchronized void update(ExecutionContext executionContext) throws ItemStreamException {
+        List<Long> read = readInChunk.get();
+
+        committedAhead.addAll(read);
+        read.clear();
+
+        while (committedAhead.remove(committedCount)) {
+            committedCount++;
+        }
+
+        executionContext.putLong(getExecutionContextKey(COMMITTED_COUNT), committedCount);
+    }
+
+    @Override
+    public void beforeChunk(ChunkContext context) {
+        // 이전 chunk 가 afterChunkError 없이 끝났더라도 남은 순번을 이번 chunk 로 넘기지 않는다.
+        readInChunk.get().clear();
+    }
+
+    @Override
+    public void afterChunk(ChunkContext context) {
+    }
+
+    @Override
+    public void afterChunkError(ChunkContext context) {
+        readInChunk.get().clear();
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        running = false;
+
+        if (producer != null) {
+            producer.interrupt();
+
+            try {
+                producer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            producer = null;
+        }
+
+        buffer = null;
+        delegate.close();
+    }
+
+    private void produce() {
+        try {
+            int tries = 0;
+            T item;
+
+            while (running && (item = delegate.read()) != null) {
+                long next = tail.get();
+
+                while (next - head.get() >= capacity) {
+                    if (!running) {
+                        return;
+                    }
+                    tries = idle(tries);
+                }
+                tries = 0;
+
+                buffer.set((int) (next & mask), item);
+                // item 을 채운 후에 tail 을 증가시켜야 consumer 가 채워진 item 만 본다.
+                tail.set(next + 1);
+            }
+        } catch (Exception e) {
+            log.error("prefetch failed. position={}", tail.get(), e);
+            failure = e;
+        } finally {
+            exhausted = true;
+        }
+    }
+
+    private int idle(int tries) {
+        if (tries < SPIN_TRIES) {
+            Thread.onSpinWait();
+        } else {
+            LockSupport.parkNanos(WAIT_NANOS);
+        }
+
+        return tries + 1;
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.springbatchmultithread.executor;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+
+/**
+ * batch.executor.mode 에 따라 Platform Thread 또는 Virtual Thread 로 실행하는 TaskExecutor 를 만든다.
+ *
+ * <pre>
+ *      - platform : 기존처럼 Thread 수를 직접 정한 TaskExecutor 를 그대로 사용한다.
+ *      - virtual : Task 마다 Virtual Thread 를 만드는 SimpleAsyncTaskExecutor 를 사용한다.
+ *          - JDBC / HTTP 응답을 기다리는 동안 carrier Thread 를 점유하지 않으므로 Thread 수가 동시성을 제한하지 않는다.
+ *          - 대신 concurrencyLimit 으로 DB connection 수 등 실제 자원 크기만큼만 동시에 실행한다. (-1 이면 제한 없음)
+ *          - JDK 21 미만에서는 경고를 남기고 platform 으로 실행한다.
+ *      - Java 11 로 컴파일되어야 하므로 Thread.ofVirtual() 은 reflection 으로 호출한다.
+ *      - synchronized 블록 안에서 I/O 를 기다리는 JDBC Driver 는 carrier Thread 를 고정(pinning) 시키므로
+ *        concurrencyLimit 을 connection pool 크기보다 크게 잡지 않는다.
+ * </pre>
+ */
+@Slf4j
+public final class BatchTaskExecutors {
+
+    public static final String MODE_PLATFORM = "platform";
+    public static final String MODE_VIRTUAL = "virtual";
+
+    private static final Method OF_VIRTUAL = findOfVirtual();
+
+    private BatchTaskExecutors() {
+    }
+
+    public static boolean isVirtualThreadSupported() {
+        return OF_VIRTUAL != null;
+    }
+
+    public static AsyncTaskExecutor create(String mode, String threadNamePrefix, int concurrencyLimit,
+        Supplier<? extends AsyncTaskExecutor> platformExecutor) {
+
+        if (!MODE_VIRTUAL.equalsIgnoreCase(mode)) {
+            return platformExecutor.get();
+        }
+
+        if (!isVirtualThreadSupported()) {
+            log.warn("virtual threads are not supported on Java {}. [{}] runs on platform threads.",
+                System.getProperty("java.version"), threadNamePrefix);
+            return platformExecutor.get();
+        }
+
+        SimpleAsyncTaskExecutor taskExecutor = new SimpleAsyncTaskExecutor(threadNamePrefix);
+        taskExecutor.setThreadFactory(virtualThreadFactory(threadNamePrefix));
+        taskExecutor.setConcurrencyLimit(concurrencyLimit);
+
+        log.info("[{}] runs on virtual threads. concurrencyLimit={}", threadNamePrefix, concurrencyLimit);
+
+        return taskExecutor;
+    }
+
+    private static ThreadFactory virtualThreadFactory(String threadNamePrefix) {
+        try {
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Object builder = OF_VIRTUAL.invoke(null);
+            builder = builderType.getMethod("name", String.class, long.class)
+                .invoke(builder, threadNamePrefix, 0L);
+
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Unable to create a virtual thread factory", e);
+        }
+    }
+
+    private static Method findOfVirtual() {
+        try {
+            Method ofVirtual = Thread.class.getMethod("ofVirtual");
+            // JDK 19, 20 에서는 --enable-preview 없이 호출하면 UnsupportedOperationException 이 발생한다.
+            ofVirtual.invoke(null);
+
+            return ofVirtual;
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,331 @@
+package com.example.springbatchmultithread.listener;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.ItemProcessListener;
+import org.springframework.batch.core.ItemReadListener;
+import org.springframework.batch.core.ItemWriteListener;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobExecutionListener;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.builder.SimpleStepBuilder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Step(partition) 별로 chunk 처리 단계마다 걸린 시간을 기록하는 Listener
+ *
+ * <pre>
+ *      - 단계
+ *          - read / process / write : 각 before ~ after 사이의 시간
+ *          - repository : write 후 commit 직전까지 (ItemStream update, StepExecution / ExecutionContext 저장)
+ *          - commit : transaction commit 시간
+ *          - other : chunk 전체 시간에서 위 단계를 뺀 나머지 (다른 Listener 실행, 프레임워크 처리)
+ *      - Thread 마다 진행중인 chunk 의 시각을 ThreadLocal 에 두고, 합계는 LongAdder 에 더하므로 Thread 간 경합이 거의 없다.
+ *      - Job 이 끝나면 outputDir 에 두 파일을 남긴다.
+ *          - {job}-{jobExecutionId}-profile.json : Step 별 단계 시간 / 횟수
+ *          - {job}-{jobExecutionId}.folded : job;step;phase microseconds (flamegraph.pl, speedscope 에서 사용)
+ *      - Job 과 Step 양쪽에 등록해야 한다. Step 에는 profile(builder) 로 등록한다.
+ * </pre>
+ */
+@Slf4j
+public class StepPhaseProfiler implements JobExecutionListener, StepExecutionListener, ChunkListener,
+    ItemReadListener<Object>, ItemProcessListener<Object, Object>, ItemWriteListener<Object> {
+
+    public enum Phase {
+        READ, PROCESS, WRITE, REPOSITORY, COMMIT, OTHER
+    }
+
+    private final Path outputDir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    private final Map<String, StepProfile> profiles = new ConcurrentHashMap<>();
+
+    private final ThreadLocal<ChunkTimer> timers = ThreadLocal.withInitial(ChunkTimer::new);
+
+    public StepPhaseProfiler(Path outputDir) {
+        this.outputDir = outputDir;
+    }
+
+    /**
+     * Step 에 chunk / item Listener 로 등록한다.
+     */
+    public <I, O> SimpleStepBuilder<I, O> profile(SimpleStepBuilder<I, O> builder) {
+        StepExecutionListener stepListener = this;
+        ChunkListener chunkListener = this;
+        ItemReadListener<Object> readListener = this;
+        ItemProcessListener<Object, Object> processListener = this;
+        ItemWriteListener<Object> writeListener = this;
+
+        builder.listener(stepListener);
+        builder.listener(chunkListener);
+        builder.listener(readListener);
+        builder.listener(processListener);
+        builder.listener(writeListener);
+
+        return builder;
+    }
+
+    @Override
+    public void beforeJob(JobExecution jobExecution) {
+        profiles.clear();
+    }
+
+    @Override
+    public void afterJob(JobExecution jobExecution) {
+        long elapsed = jobExecution.getEndTime().getTime() - jobExecution.getStartTime().getTime();
+        String jobName = jobExecution.getJobInstance().getJobName();
+        String fileName = jobName + "-" + jobExecution.getId();
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("job", jobName);
+        report.put("jobExecutionId", jobExecution.getId());
+        report.put("status", jobExecution.getStatus().toString());
+        report.put("elapsedMillis", elapsed);
+
+        List<Map<String, Object>> steps = new ArrayList<>();
+        List<String> folded = new ArrayList<>();
+
+        profiles.forEach((stepName, profile) -> {
+            steps.add(profile.toReport(stepName));
+
+            for (Phase phase : Phase.values()) {
+                long micros = TimeUnit.NANOSECONDS.toMicros(profile.nanos.get(phase).sum());
+                if (micros > 0) {
+                    folded.add(jobName + ";" + stepName + ";" + phase.name().toLowerCase() + " " + micros);
+                }
+            }
+        });
+        report.put("steps", steps);
+
+        try {
+            Files.createDirectories(outputDir);
+
+            Path json = outputDir.resolve(fileName + "-profile.json");
+            objectMapper.writeValue(json.toFile(), report);
+
+            Path stacks = outputDir.resolve(fileName + ".folded");
+            try (Writer writer = Files.newBufferedWriter(stacks, StandardCharsets.UTF_8)) {
+                for (String line : folded) {
+                    writer.write(line);
+                    writer.write('\n');
+                }
+            }
+
+            log.info("elapsed={}, profile={}, folded={}", elapsed, json, stacks);
+        } catch (IOException e) {
+            log.warn("failed to write profile. elapsed={}", elapsed, e);
+        }
+    }
+
+    @Override
+    public void beforeStep(StepExecution stepExecution) {
+        stepProfile(stepExecution.getStepName()).startedAt = System.nanoTime();
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        StepProfile profile = stepProfile(stepExecution.getStepName());
+        profile.elapsedNanos = System.nanoTime() - profile.startedAt;
+        profile.readCount = stepExecution.getReadCount();
+        profile.writeCount = stepExecution.getWriteCount();
+
+        return null;
+    }
+
+    @Override
+    public void beforeChunk(ChunkContext context) {
+        ChunkTimer timer = timers.get();
+        timer.profile = stepProfile(context.getStepContext().getStepName());
+        timer.chunkStart = System.nanoTime();
+        timer.measured = 0;
+        timer.synchronizationRegistered = false;
+    }
+
+    @Override
+    public void afterChunk(ChunkContext context) {
+        ChunkTimer timer = timers.get();
+        long elapsed = System.nanoTime() - timer.chunkStart;
+
+        timer.profile.add(Phase.OTHER, Math.max(0, elapsed - timer.measured));
+        timer.profile.chunks.increment();
+    }
+
+    @Override
+    public void afterChunkError(ChunkContext context) {
+        ChunkTimer timer = timers.get();
+
+        if (timer.profile != null) {
+            timer.profile.rollbacks.increment();
+        }
+    }
+
+    @Override
+    public void beforeRead() {
+        timers.get().phaseStart = System.nanoTime();
+    }
+
+    @Override
+    public void afterRead(Object item) {
+        endPhase(Phase.READ);
+    }
+
+    @Override
+    public void onReadError(Exception ex) {
+        endPhase(Phase.READ);
+    }
+
+    @Override
+    public void beforeProcess(Object item) {
+        timers.get().phaseStart = System.nanoTime();
+    }
+
+    @Override
+    public void afterProcess(Object item, Object result) {
+        endPhase(Phase.PROCESS);
+    }
+
+    @Override
+    public void onProcessError(Object item, Exception e) {
+        endPhase(Phase.PROCESS);
+    }
+
+    @Override
+    public void beforeWrite(List<? extends Object> items) {
+        timers.get().phaseStart = System.nanoTime();
+    }
+
+    @Override
+    public void afterWrite(List<? extends Object> items) {
+        ChunkTimer timer = timers.get();
+        endPhase(Phase.WRITE);
+
+        timer.afterWriteAt = System.nanoTime();
+        registerCommitTimer(timer);
+    }
+
+    @Override
+    public void onWriteError(Exception exception, List<? extends Object> items) {
+        endPhase(Phase.WRITE);
+    }
+
+    /**
+     * commit 직전 / 직후 시각으로 repository / commit 단계를 나눈다.
+     */
+    private void registerCommitTimer(ChunkTimer timer) {
+        if (timer.synchronizationRegistered || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        timer.synchronizationRegistered = true;
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                timer.beforeCommitAt = System.nanoTime();
+                timer.record(Phase.REPOSITORY, timer.beforeCommitAt - timer.afterWriteAt);
+            }
+
+            @Override
+            public void afterCommit() {
+                timer.record(Phase.COMMIT, System.nanoTime() - timer.beforeCommitAt);
+            }
+        });
+    }
+
+    private void endPhase(Phase phase) {
+        ChunkTimer timer = timers.get();
+
+        if (timer.profile != null) {
+            timer.record(phase, System.nanoTime() - timer.phaseStart);
+        }
+    }
+
+    private StepProfile stepProfile(String stepName) {
+        return profiles.computeIfAbsent(stepName, key -> new StepProfile());
+    }
+
+    private static class ChunkTimer {
+
+        private StepProfile profile;
+        private long chunkStart;
+        private long phaseStart;
+        private long afterWriteAt;
+        private long beforeCommitAt;
+        private long measured;
+        private boolean synchronizationRegistered;
+
+        private void record(Phase phase, long nanos) {
+            profile.add(phase, nanos);
+            measured += nanos;
+        }
+    }
+
+    private static class StepProfile {
+
+        private final Map<Phase, LongAdder> nanos = new EnumMap<>(Phase.class);
+        private final Map<Phase, LongAdder> counts = new EnumMap<>(Phase.class);
+        private final LongAdder chunks = new LongAdder();
+        private final LongAdder rollbacks = new LongAdder();
+
+        private volatile long startedAt;
+        private volatile long elapsedNanos;
+        private volatile long readCount;
+        private volatile long writeCount;
+
+        private StepProfile() {
+            for (Phase phase : Phase.values()) {
+                nanos.put(phase, new LongAdder());
+                counts.put(phase, new LongAdder());
+            }
+        }
+
+        private void add(Phase phase, long elapsed) {
+            nanos.get(phase).add(elapsed);
+            counts.get(phase).increment();
+        }
+
+        private Map<String, Object> toReport(String stepName) {
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("step", stepName);
+            report.put("elapsedMillis", TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+            report.put("chunks", chunks.sum());
+            report.put("rollbacks", rollbacks.sum());
+            report.put("readCount", readCount);
+            report.put("writeCount", writeCount);
+
+            Map<String, Object> phases = new LinkedHashMap<>();
+            for (Phase phase : Phase.values()) {
+                long count = counts.get(phase).sum();
+                long totalMicros = TimeUnit.NANOSECONDS.toMicros(nanos.get(phase).sum());
+
+                Map<String, Object> value = new LinkedHashMap<>();
+                value.put("count", count);
+                value.put("totalMicros", totalMicros);
+                value.put("avgMicros", count > 0 ? totalMicros / count : 0);
+                phases.put(phase.name().toLowerCase(), value);
+            }
+            report.put("phases", phases);
+
+            return report;
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.example.springbatchmultithread.ch04_parallel_steps.dag;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.repository.support.MapJobRepositoryFactoryBean;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+
+/**
+ * step1 ─┬─ step2 ── step3
+ *        └─ step4 ── step5
+ */
+class DagJobTest {
+
+    private final List<String> events = new CopyOnWriteArrayList<>();
+
+    private final Map<String, Runnable> bodies = new ConcurrentHashMap<>();
+
+    private JobRepository jobRepository;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        MapJobRepositoryFactoryBean factory = new MapJobRepositoryFactoryBean();
+        factory.afterPropertiesSet();
+
+        jobRepository = factory.getObject();
+    }
+
+    @Test
+    void stepsStartAfterTheirDependencies() throws Exception {
+        JobExecution execution = run(new SimpleAsyncTaskExecutor());
+
+        assertEquals(BatchStatus.COMPLETED, execution.getStatus());
+        assertBefore("end:step1", "start:step2");
+        assertBefore("end:step1", "start:step4");
+        assertBefore("end:step2", "start:step3");
+        assertBefore("end:step4", "start:step5");
+    }
+
+    @Test
+    void stepWaitsOnlyForItsOwnDependencies() throws Exception {
+        CountDownLatch step5Done = new CountDownLatch(1);
+
+        // split 이었다면 step5 는 step3 이 끝날 때까지 시작하지 못한다.
+        bodies.put("step3", () -> await(step5Done));
+        bodies.put("step5", step5Done::countDown);
+
+        JobExecution execution = run(new SimpleAsyncTaskExecutor());
+
+        assertEquals(BatchStatus.COMPLETED, execution.getStatus());
+        assertBefore("start:step5", "end:step3");
+    }
+
+    @Test
+    void failedStepStopsNewLaunches() throws Exception {
+        CountDownLatch step2Failed = new CountDownLatch(1);
+
+        bodies.put("step2", () -> {
+            step2Failed.countDown();
+            throw new IllegalStateException("step2 failed");
+        });
+        // step2 의 실패가 먼저 반영된 뒤에 끝난다.
+        bodies.put("step4", () -> {
+            await(step2Failed);
+            sleep(200);
+        });
+
+        JobExecution execution = run(new SimpleAsyncTaskExecutor());
+
+        assertEquals(BatchStatus.FAILED, execution.getStatus());
+        assertTrue(events.contains("end:step4"), events.toString());
+        assertEquals(Set.of("step1", "step2", "step4"), startedSteps());
+    }
+
+    @Test
+    void rejectedLaunchFailsJobAfterRunningStepsFinish() throws Exception {
+        SimpleAsyncTaskExecutor delegate = new SimpleAsyncTaskExecutor();
+        AtomicInteger launches = new AtomicInteger();
+
+        // step1 다음에 실행하는 두번째 Step 을 거절한다.
+        TaskExecutor taskExecutor = task -> {
+            if (launches.incrementAndGet() == 3) {
+                throw new TaskRejectedException("queue is full");
+            }
+            delegate.execute(task);
+        };
+
+        bodies.put("step2", () -> sleep(200));
+        bodies.put("step4", () -> sleep(200));
+
+        JobExecution execution = run(taskExecutor);
+
+        assertEquals(BatchStatus.FAILED, execution.getStatus());
+        assertEquals(2, startedSteps().size(), events.toString());
+
+        // 거절되기 전에 실행한 Step 이 끝난 뒤에 Job 이 끝난다.
+        startedSteps().forEach(name -> assertTrue(events.contains("end:" + name), events.toString()));
+    }
+
+    private JobExecution run(TaskExecutor taskExecutor) throws Exception {
+        DagJob job = new DagJob("dagJob");
+
+        job.setJobRepository(jobRepository);
+        job.setTaskExecutor(taskExecutor);
+        job.setMaxConcurrency(2);
+
+        job.addStep(new RecordingStep("step1"));
+        job.addStep(new RecordingStep("step2"), "step1");
+        job.addStep(new RecordingStep("step3"), "step2");
+        job.addStep(new RecordingStep("step4"), "step1");
+        job.addStep(new RecordingStep("step5"), "step4");
+        job.afterPropertiesSet();
+
+        JobExecution execution = jobRepository.createJobExecution(job.getName(), new JobParameters());
+        job.execute(execution);
+
+        return execution;
+    }
+
+    private void assertBefore(String first, String second) {
+        int firstIndex = events.indexOf(first);
+        int secondIndex = events.indexOf(second);
+
+        assertTrue(firstIndex >= 0 && secondIndex >= 0 && firstIndex < secondIndex,
+            first + " -> " + second + " : " + events);
+    }
+
+    private Set<String> startedSteps() {
+        Set<String> started = ConcurrentHashMap.newKeySet();
+
+        events.stream()
+            .filter(event -> event.startsWith("start:"))
+            .forEach(event -> started.add(event.substring("start:".length())));
+
+        return started;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            if (!latch.await(5, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("timed out");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 시작 / 종료를 기록하고 bodies 에 등록된 작업을 실행한다. 작업이 예외를 던지면 FAILED 가 된다.
+     */
+    private class RecordingStep implements Step {
+
+        private final String name;
+
+        private RecordingStep(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public boolean isAllowStartIfComplete() {
+            return false;
+        }
+
+        @Override
+        public int getStartLimit() {
+            return Integer.MAX_VALUE;
+        }
+
+        @Override
+        public void execute(StepExecution stepExecution) {
+            events.add("start:" + name);
+
+            try {
+                bodies.getOrDefault(name, () -> { }).run();
+
+                stepExecution.setStatus(BatchStatus.COMPLETED);
+                stepExecution.setExitStatus(ExitStatus.COMPLETED);
+            } catch (RuntimeException e) {
+                stepExecution.setStatus(BatchStatus.FAILED);
+                stepExecution.setExitStatus(ExitStatus.FAILED);
+                stepExecution.addFailureException(e);
+            } finally {
+                events.add("end:" + name);
+            }
+        }
+    }
+}
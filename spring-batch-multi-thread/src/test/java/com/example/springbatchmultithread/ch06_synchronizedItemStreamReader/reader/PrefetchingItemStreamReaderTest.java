@@ -0,0 +1,174 @@
+package com.example.springbatchmultithread.ch06_synchronizedItemStreamReader.reader;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamReader;
+
+class PrefetchingItemStreamReaderTest {
+
+    private static final String COMMITTED_COUNT = "reader.committed.count";
+
+    @Test
+    void concurrentReadersTakeEachItemExactlyOnce() throws Exception {
+        int itemCount = 200_000;
+        int threads = 8;
+
+        // buffer 를 작게 잡아서 producer 와 consumer 가 ring buffer 를 여러 번 돌게 한다.
+        PrefetchingItemStreamReader<Integer> reader = open(itemCount, 16, new ExecutionContext());
+        AtomicIntegerArray readCounts = new AtomicIntegerArray(itemCount);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    int count = 0;
+                    Integer item;
+
+                    while ((item = reader.read()) != null) {
+                        readCounts.incrementAndGet(item);
+                        count++;
+                    }
+                    return count;
+                }));
+            }
+
+            int total = 0;
+            for (Future<Integer> result : results) {
+                total += result.get(30, TimeUnit.SECONDS);
+            }
+
+            assertEquals(itemCount, total);
+            for (int item = 0; item < itemCount; item++) {
+                assertEquals(1, readCounts.get(item), "item " + item);
+            }
+        } finally {
+            executor.shutdownNow();
+            reader.close();
+        }
+    }
+
+    @Test
+    void committedCountWaitsForEarlierChunks() throws Exception {
+        PrefetchingItemStreamReader<Integer> reader = open(10, 4, new ExecutionContext());
+        ExecutionContext executionContext = new ExecutionContext();
+
+        ExecutorService other = Executors.newSingleThreadExecutor();
+        try {
+            // 다른 Thread 가 0, 1 을 읽고 아직 commit 하지 않았다.
+            assertEquals(List.of(0, 1), other.submit(() -> read(reader, 2)).get());
+
+            assertEquals(List.of(2, 3), read(reader, 2));
+            reader.update(executionContext);
+            assertEquals(0, executionContext.getLong(COMMITTED_COUNT));
+
+            other.submit(() -> reader.update(executionContext)).get();
+            assertEquals(4, executionContext.getLong(COMMITTED_COUNT));
+        } finally {
+            other.shutdownNow();
+            reader.close();
+        }
+    }
+
+    @Test
+    void itemsOfFailedChunkAreNotCommitted() throws Exception {
+        PrefetchingItemStreamReader<Integer> reader = open(10, 4, new ExecutionContext());
+        ExecutionContext executionContext = new ExecutionContext();
+
+        try {
+            reader.beforeChunk(null);
+            read(reader, 2);
+            reader.update(executionContext);
+            assertEquals(2, executionContext.getLong(COMMITTED_COUNT));
+
+            // 2, 3 을 읽은 chunk 가 rollback 되었다.
+            reader.beforeChunk(null);
+            read(reader, 2);
+            reader.afterChunkError(null);
+
+            reader.beforeChunk(null);
+            read(reader, 2);
+            reader.update(executionContext);
+            assertEquals(2, executionContext.getLong(COMMITTED_COUNT));
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    void restartSkipsCommittedItems() throws Exception {
+        ExecutionContext executionContext = new ExecutionContext();
+        executionContext.putLong(COMMITTED_COUNT, 7);
+
+        PrefetchingItemStreamReader<Integer> reader = open(10, 4, executionContext);
+
+        try {
+            assertEquals(List.of(7, 8, 9), read(reader, 3));
+            assertNull(reader.read());
+        } finally {
+            reader.close();
+        }
+    }
+
+    private PrefetchingItemStreamReader<Integer> open(int itemCount, int capacity,
+        ExecutionContext executionContext) {
+        PrefetchingItemStreamReader<Integer> reader = new PrefetchingItemStreamReader<>(
+            new CountingItemReader(itemCount), capacity);
+        reader.setName("reader");
+        reader.open(executionContext);
+
+        return reader;
+    }
+
+    private List<Integer> read(PrefetchingItemStreamReader<Integer> reader, int count) throws Exception {
+        List<Integer> items = new ArrayList<>();
+
+        for (int i = 0; i < count; i++) {
+            items.add(reader.read());
+        }
+        return items;
+    }
+
+    /**
+     * 0 부터 itemCount - 1 까지 차례대로 돌려준다. producer Thread 만 읽는다.
+     */
+    private static class CountingItemReader implements ItemStreamReader<Integer> {
+
+        private final int itemCount;
+
+        private int next;
+
+        private CountingItemReader(int itemCount) {
+            this.itemCount = itemCount;
+        }
+
+        @Override
+        public Integer read() {
+            return next < itemCount ? next++ : null;
+        }
+
+        @Override
+        public void open(ExecutionContext executionContext) {
+            next = 0;
+        }
+
+        @Override
+        public void update(ExecutionContext executionContext) {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.springbatchpracticalexam.batch.catalog;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * 그룹별 row 수
+ */
+@Data
+@Builder
+public class ColumnStatistics {
+
+    private String group;
+    private long count;
+
+}
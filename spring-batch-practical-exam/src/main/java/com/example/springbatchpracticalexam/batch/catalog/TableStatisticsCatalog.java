@@ -0,0 +1,158 @@
+package com.example.springbatchpracticalexam.batch.catalog;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Partition 계획에 필요한 테이블 통계 캐시
+ *
+ * <pre>
+ *      - Partitioner 가 실행될 때마다 group by 로 테이블 전체를 읽지 않도록 결과를 캐시한다.
+ *      - 캐시는 ttl 이 지나면 다시 조회하고, 데이터를 적재한 Job 은 invalidate() 로 바로 만료시킨다.
+ *      - 같은 key 를 동시에 조회하면 한번만 조회한다.
+ *
+ *      ! table / column 이름은 SQL 에 그대로 들어가기 때문에 설정값만 사용해야 한다.
+ * </pre>
+ */
+@Slf4j
+@Component
+public class TableStatisticsCatalog {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final long ttlNanos;
+
+    private final Map<CacheKey, CacheEntry> cache = new ConcurrentHashMap<>();
+
+    public TableStatisticsCatalog(DataSource dataSource,
+        @Value("${batch.catalog.ttl-seconds:300}") long ttlSeconds) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+    }
+
+    /**
+     * groupColumn 의 값 별 row 수
+     */
+    public List<ColumnStatistics> getGroupStatistics(String table, String groupColumn) {
+        return get(new CacheKey(table, "group", groupColumn),
+            () -> jdbcTemplate.query(
+                "select " + groupColumn + " as grp, count(*) as cnt from " + table
+                    + " group by " + groupColumn,
+                (rs, rowNum) -> ColumnStatistics.builder()
+                    .group(rs.getString("grp"))
+                    .count(rs.getLong("cnt"))
+                    .build()));
+    }
+
+    /**
+     * groupColumn = group 인 row 를 keyColumn 순으로 정렬했을 때 offset 번째 keyColumn 값
+     */
+    public Long getKeyAtOffset(String table, String keyColumn, String groupColumn, String group,
+        long offset) {
+        List<Long> keys = get(
+            new CacheKey(table, "offset", keyColumn + ":" + groupColumn + ":" + group + ":" + offset),
+            () -> jdbcTemplate.queryForList(
+                "select " + keyColumn + " from " + table + " where " + groupColumn + " = ? order by "
+                    + keyColumn + " limit 1 offset ?", Long.class, group, offset));
+
+        return keys.isEmpty() ? null : keys.get(0);
+    }
+
+    public void invalidate(String table) {
+        cache.keySet().removeIf(key -> key.table.equals(table));
+
+        log.info("statistics of {} are invalidated.", table);
+    }
+
+    /**
+     * 조회는 map 의 lock 밖에서 한다.
+     * <p>
+     * compute 안에서는 만료된 entry 를 조회 중인 entry 로 바꾸기만 하고, 그 entry 를 넣은 thread 가 조회해서 future 를 완료한다.
+     * 같은 key 를 동시에 조회한 thread 는 그 future 를 기다리고, 다른 key 의 조회는 막히지 않는다.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T get(CacheKey key, Supplier<T> loader) {
+        long now = System.nanoTime();
+
+        CacheEntry loading = new CacheEntry(now + ttlNanos);
+
+        CacheEntry entry = cache.compute(key, (k, current) -> {
+            if (current != null && current.expiresAt - now > 0) {
+                return current;
+            }
+
+            return loading;
+        });
+
+        if (entry == loading) {
+            try {
+                loading.value.complete(loader.get());
+            } catch (RuntimeException e) {
+                // 실패한 결과는 캐시하지 않는다.
+                cache.remove(key, loading);
+                loading.value.completeExceptionally(e);
+                throw e;
+            }
+        }
+
+        try {
+            return (T) entry.value.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+
+            throw e;
+        }
+    }
+
+    private static class CacheKey {
+
+        private final String table;
+        private final String kind;
+        private final String detail;
+
+        private CacheKey(String table, String kind, String detail) {
+            this.table = table;
+            this.kind = kind;
+            this.detail = detail;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey other = (CacheKey) o;
+            return table.equals(other.table) && kind.equals(other.kind) && detail.equals(other.detail);
+        }
+
+        @Override
+        public int hashCode() {
+            return (table.hashCode() * 31 + kind.hashCode()) * 31 + detail.hashCode();
+        }
+    }
+
+    private static class CacheEntry {
+
+        private final CompletableFuture<Object> value = new CompletableFuture<>();
+        private final long expiresAt;
+
+        private CacheEntry(long expiresAt) {
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.springbatchpracticalexam.batch.chunk.policy;
+
+import java.util.function.IntSupplier;
+import org.springframework.batch.repeat.RepeatContext;
+import org.springframework.batch.repeat.context.RepeatContextSupport;
+import org.springframework.batch.repeat.policy.CompletionPolicySupport;
+
+/**
+ * 요청 예산에 맞춰 chunk 크기를 정하는 CompletionPolicy
+ *
+ * <pre>
+ *      - chunk 를 시작할 때 ApiRequestBatcher 의 item 예산을 보고 그 chunk 에서 읽을 item 수를 정한다.
+ *          - chunk 의 item 은 그 chunk 안에서 모두 보내므로, chunk 가 예산보다 작으면 요청도 예산보다 작아진다.
+ *      - minSize(api.step.chunk-size) ~ maxSize(api.step.max-chunk-size) 로 제한해서 rollback 범위가 커지지 않게 한다.
+ *      - 예산은 요청이 끝날 때마다 바뀌므로 이미 시작한 chunk 의 크기는 바꾸지 않는다.
+ * </pre>
+ */
+public class RequestBudgetCompletionPolicy extends CompletionPolicySupport {
+
+    private final IntSupplier itemBudget;
+
+    private final int minSize;
+
+    private final int maxSize;
+
+    public RequestBudgetCompletionPolicy(IntSupplier itemBudget, int minSize, int maxSize) {
+        this.itemBudget = itemBudget;
+        this.minSize = Math.max(1, minSize);
+        this.maxSize = Math.max(this.minSize, maxSize);
+    }
+
+    @Override
+    public RepeatContext start(RepeatContext parent) {
+        int size = Math.min(maxSize, Math.max(minSize, itemBudget.getAsInt()));
+
+        return new ChunkSizeContext(parent, size);
+    }
+
+    @Override
+    public boolean isComplete(RepeatContext context) {
+        return context.getStartedCount() >= ((ChunkSizeContext) context).size;
+    }
+
+    private static class ChunkSizeContext extends RepeatContextSupport {
+
+        private final int size;
+
+        private ChunkSizeContext(RepeatContext parent, int size) {
+            super(parent);
+            this.size = size;
+        }
+    }
+}
@@ -2,6 +2,8 @@ package com.example.springbatchpracticalexam.batch.chunk.processor;
 
 import com.example.springbatchpracticalexam.batch.domain.Product;
 import com.example.springbatchpracticalexam.batch.domain.ProductVO;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import org.springframework.batch.item.ItemProcessor;
 
 public class FileItemProcessor implements ItemProcessor<ProductVO, Product> {
@@ -14,6 +16,8 @@ public class FileItemProcessor implements ItemProcessor<ProductVO, Product> {
             .name(item.getName())
             .price(item.getPrice())
             .type(item.getType())
+            // DB 에 따라 소수점 이하 자리수가 달라 반올림되지 않도록 ms 단위로 맞춘다.
+            .updatedAt(LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS))
             .build();
     }
 }
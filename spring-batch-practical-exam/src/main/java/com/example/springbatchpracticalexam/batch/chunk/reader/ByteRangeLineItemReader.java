@@ -0,0 +1,187 @@
+package com.example.springbatchpracticalexam.batch.chunk.reader;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.file.LineMapper;
+import org.springframework.batch.item.support.ItemStreamSupport;
+
+/**
+ * 파일의 [startOffset, endOffset) 범위만 줄 단위로 읽는다.
+ *
+ * <pre>
+ *      - FileByteRangePartitioner 가 나눈 범위를 partition 마다 독립적으로 읽는다.
+ *      - FileChannel 의 위치 지정 read 를 사용하므로 다른 partition 과 파일 위치를 공유하지 않는다.
+ *          - memory-mapped 파일은 unmap 시점을 제어할 수 없어 사용하지 않는다.
+ *      - 다음에 읽을 줄의 byte 위치를 ExecutionContext 에 저장하므로 재시작하면 그 위치부터 다시 읽는다.
+ *          - FlatFileItemReader 처럼 읽었던 줄을 처음부터 다시 읽으며 건너뛰지 않는다.
+ * </pre>
+ */
+public class ByteRangeLineItemReader<T> extends ItemStreamSupport implements ItemStreamReader<T> {
+
+    private static final String OFFSET = "offset";
+
+    private final Path path;
+
+    private final long startOffset;
+
+    private final long endOffset;
+
+    private final LineMapper<T> lineMapper;
+
+    private Charset charset = StandardCharsets.UTF_8;
+
+    private int bufferSize = 64 * 1024;
+
+    private FileChannel channel;
+
+    private ByteBuffer buffer;
+
+    private final ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+
+    /**
+     * 다음에 읽을 줄의 시작 위치
+     */
+    private long position;
+
+    /**
+     * 다음에 buffer 로 읽어올 위치
+     */
+    private long readPosition;
+
+    private int lineCount;
+
+    public ByteRangeLineItemReader(Path path, long startOffset, long endOffset,
+        LineMapper<T> lineMapper) {
+        this.path = path;
+        this.startOffset = startOffset;
+        this.endOffset = endOffset;
+        this.lineMapper = lineMapper;
+    }
+
+    public void setCharset(Charset charset) {
+        this.charset = charset;
+    }
+
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        super.open(executionContext);
+
+        position = executionContext.containsKey(getExecutionContextKey(OFFSET))
+            ? executionContext.getLong(getExecutionContextKey(OFFSET))
+            : startOffset;
+        readPosition = position;
+        lineCount = 0;
+
+        buffer = ByteBuffer.allocate(bufferSize);
+        buffer.flip();
+
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+        } catch (IOException e) {
+            throw new ItemStreamException("failed to open " + path, e);
+        }
+    }
+
+    @Override
+    public T read() throws Exception {
+
+        while (position < endOffset) {
+
+            line.reset();
+            long consumed = 0;
+            boolean eof = false;
+
+            while (true) {
+                if (!buffer.hasRemaining() && !fill()) {
+                    eof = true;
+                    break;
+                }
+
+                byte b = buffer.get();
+                consumed++;
+
+                if (b == '\n') {
+                    break;
+                }
+
+                line.write(b);
+            }
+
+            if (consumed == 0 && eof) {
+                return null;
+            }
+
+            position += consumed;
+
+            String text = decode();
+
+            // 빈 줄은 건너뛴다.
+            if (!text.isEmpty()) {
+                return lineMapper.mapLine(text, ++lineCount);
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        super.update(executionContext);
+
+        executionContext.putLong(getExecutionContextKey(OFFSET), position);
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        super.close();
+
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException e) {
+            throw new ItemStreamException("failed to close " + path, e);
+        } finally {
+            channel = null;
+            buffer = null;
+        }
+    }
+
+    private boolean fill() throws IOException {
+        buffer.clear();
+        int read = channel.read(buffer, readPosition);
+        buffer.flip();
+
+        if (read <= 0) {
+            return false;
+        }
+
+        readPosition += read;
+
+        return true;
+    }
+
+    private String decode() {
+        byte[] bytes = line.toByteArray();
+        int length = bytes.length;
+
+        if (length > 0 && bytes[length - 1] == '\r') {
+            length--;
+        }
+
+        return new String(bytes, 0, length, charset);
+    }
+}
@@ -0,0 +1,334 @@
+package com.example.springbatchpracticalexam.batch.chunk.writer;
+
+import com.example.springbatchpracticalexam.batch.domain.ApiRequestVO;
+import com.example.springbatchpracticalexam.batch.domain.ApiResponseVO;
+import com.example.springbatchpracticalexam.batch.domain.ProductVO;
+import com.example.springbatchpracticalexam.service.AbstractApiService;
+import com.example.springbatchpracticalexam.service.ApiRequestDispatcher;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.file.FlatFileItemWriter;
+import org.springframework.batch.item.file.transform.DelimitedLineAggregator;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.DigestUtils;
+
+/**
+ * ApiItemWriter 공통 처리
+ *
+ * <pre>
+ *      - Step 의 ItemStream 으로 등록되어 partition 마다 한번 open / close 된다.
+ *          - 파일에 기록한 위치는 ExecutionContext 에 저장되므로 재시작시 commit 된 위치부터 다시 기록한다.
+ *      - chunk 의 item 을 ApiRequestBatcher 가 정한 크기(item 수 / byte)로 잘라서 요청으로 보낸다.
+ *          - chunk 의 item 은 모두 그 chunk 안에서 보내므로 commit 된 chunk 에 보내지 않은 item 은 없다.
+ *          - chunk 크기는 RequestBudgetCompletionPolicy 가 요청 예산에 맞춰 정한다.
+ *      - 동기 모드
+ *          - write() 안에서 API 를 호출하고 응답을 받은 후 파일에 기록한다.
+ *      - 비동기 모드 (ApiRequestDispatcher 설정시)
+ *          - write() 는 요청만 보내고 반환한다. 요청들은 endpoint 마다 max-in-flight 개 까지 동시에 처리된다.
+ *              - chunk 의 요청들이 서로, 그리고 다른 유형의 ApiItemWriter 가 보낸 요청과 동시에 처리된다.
+ *          - ApiCompositeItemWriter 가 write 마지막에 completeRequests() 를 호출하면 모든 응답을 기다린 후 파일에 기록한다.
+ *              - commit 시점에는 처리중인 요청이 없으므로 재시작은 동기 모드와 같다. (commit 된 chunk 는 모두 응답을 받았다)
+ *          - chunk 가 rollback 되면 처리중인 요청 목록을 비운다.
+ *              - 다시 처리할 때 같은 key 로 모두 다시 보내므로 이미 처리된 요청은 api-service 가 이전 응답을 돌려준다.
+ *      - Idempotency-Key (idempotencyKeyPrefix 설정시)
+ *          - prefix(job instance + partition + writer) : chunk 순번 : 요청 순번 : 요청 내용 hash
+ *          - chunk 순번은 commit 된 chunk 수이며 ExecutionContext 에 저장되므로 rollback / 재시작 후에도 같은 chunk 는 같은 순번이다.
+ *          - rollback 된 chunk 를 다시 처리할 때는 예산이 바뀌었더라도 이전과 같은 크기로 잘라서 같은 key 로 보낸다.
+ * </pre>
+ */
+@Slf4j
+public abstract class AbstractApiItemWriter extends FlatFileItemWriter<ApiRequestVO> {
+
+    private static final String CHUNK_SEQUENCE = "chunk.sequence";
+
+    private final AbstractApiService apiService;
+
+    private ApiRequestDispatcher apiRequestDispatcher;
+
+    private String idempotencyKeyPrefix;
+
+    private ApiResponseListener responseListener;
+
+    /**
+     * 이번 chunk 에서 보내고 응답을 아직 파일에 기록하지 않은 요청 (보낸 순서)
+     */
+    private List<PendingRequest> pendingRequests = new ArrayList<>();
+
+    private long chunkSequence;
+
+    private boolean written;
+
+    /**
+     * 마지막으로 commit 된 chunk 순번 (rollback 되면 이 순번으로 되돌린다)
+     */
+    private long committedSequence;
+
+    private boolean synchronizationRegistered;
+
+    /**
+     * 이번 chunk 에서 자른 요청별 item 수 (commit 되면 비우고, rollback 되면 처음부터 다시 사용한다)
+     */
+    private List<Integer> splitSizes = new ArrayList<>();
+
+    private int splitIndex;
+
+    protected AbstractApiItemWriter(AbstractApiService apiService) {
+        this.apiService = apiService;
+
+        setLineAggregator(new DelimitedLineAggregator<>());
+        // chunk 동안 buffer 에 모았다가 commit 시점에 한번 기록하고 fsync 한다.
+        setTransactional(true);
+        setForceSync(true);
+        // partition 에서 처리하지 않은 유형의 파일은 남기지 않는다.
+        setShouldDeleteIfEmpty(true);
+    }
+
+    /**
+     * 설정할 경우 비동기 모드로 동작한다.
+     */
+    public void setApiRequestDispatcher(ApiRequestDispatcher apiRequestDispatcher) {
+        this.apiRequestDispatcher = apiRequestDispatcher;
+    }
+
+    /**
+     * 설정할 경우 요청마다 Idempotency-Key 를 보낸다.
+     */
+    public void setIdempotencyKeyPrefix(String idempotencyKeyPrefix) {
+        this.idempotencyKeyPrefix = idempotencyKeyPrefix;
+    }
+
+    /**
+     * 응답을 파일에 기록할 때마다 호출된다. (ProductWatermarkTracker)
+     */
+    public void setResponseListener(ApiResponseListener responseListener) {
+        this.responseListener = responseListener;
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        super.open(executionContext);
+
+        String key = getExecutionContextKey(CHUNK_SEQUENCE);
+        chunkSequence = executionContext.containsKey(key) ? executionContext.getLong(key) : 0;
+        written = false;
+
+        pendingRequests = new ArrayList<>();
+
+        markCommitted();
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        registerSynchronization();
+
+        super.update(executionContext);
+
+        // chunk 가 commit 되기 직전에 호출되므로 다음 chunk 의 순번으로 넘어간다.
+        if (written) {
+            chunkSequence++;
+            written = false;
+        }
+
+        executionContext.putLong(getExecutionContextKey(CHUNK_SEQUENCE), chunkSequence);
+
+        // Step 시작 시점처럼 transaction 밖에서 호출된 경우
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            markCommitted();
+        }
+    }
+
+    @Override
+    public void write(List<? extends ApiRequestVO> items) throws Exception {
+
+        registerSynchronization();
+
+        written = true;
+
+        int from = 0;
+
+        while (from < items.size()) {
+            int size = nextSplitSize(items.subList(from, items.size()));
+
+            List<ApiRequestVO> requestItems = new ArrayList<>(items.subList(from, from + size));
+            from += size;
+
+            String idempotencyKey = idempotencyKey(splitIndex++, requestItems);
+
+            if (apiRequestDispatcher == null) {
+                writeResponse(requestItems, apiService.service(requestItems, idempotencyKey));
+                continue;
+            }
+
+            pendingRequests.add(new PendingRequest(requestItems,
+                apiRequestDispatcher.submit(apiService, requestItems, idempotencyKey)));
+        }
+    }
+
+    /**
+     * 이번 chunk 에서 보낸 요청의 응답을 모두 기다린 후 보낸 순서대로 파일에 기록한다.
+     * <p>
+     * 실패한 요청이 있어도 나머지 요청이 모두 끝날 때까지 기다린 후 예외를 던진다.
+     * (rollback 된 후에도 요청이 남아 있으면 다음 시도에서 보낸 요청과 순서가 섞인다)
+     */
+    public void completeRequests() throws Exception {
+
+        List<PendingRequest> requests = pendingRequests;
+        pendingRequests = new ArrayList<>();
+
+        Exception failure = null;
+
+        for (PendingRequest pendingRequest : requests) {
+            try {
+                ApiResponseVO responseVO = pendingRequest.getResponse().get();
+
+                // 실패한 요청 뒤의 응답은 rollback 되므로 기록하지 않는다.
+                if (failure == null) {
+                    writeResponse(pendingRequest.getItems(), responseVO);
+                }
+            } catch (ExecutionException e) {
+                Exception cause = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+
+                if (failure == null) {
+                    failure = cause;
+                } else {
+                    failure.addSuppressed(cause);
+                }
+            }
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * 남은 item 중 다음 요청에 담을 item 수
+     * <p>
+     * rollback 된 chunk 를 다시 처리하는 경우 이전 시도에서 자른 크기를 그대로 사용한다.
+     */
+    private int nextSplitSize(List<? extends ApiRequestVO> remainingItems) {
+
+        if (splitIndex < splitSizes.size()) {
+            int size = splitSizes.get(splitIndex);
+
+            if (size <= remainingItems.size()) {
+                return size;
+            }
+
+            // 이전 시도와 item 이 달라진 경우 남은 크기는 버리고 다시 정한다.
+            splitSizes = new ArrayList<>(splitSizes.subList(0, splitIndex));
+        }
+
+        int size = apiService.nextBatchSize(remainingItems);
+        splitSizes.add(size);
+
+        return size;
+    }
+
+    private String idempotencyKey(int index, List<ApiRequestVO> items) {
+
+        if (idempotencyKeyPrefix == null) {
+            return null;
+        }
+
+        StringBuilder content = new StringBuilder();
+
+        for (ApiRequestVO item : items) {
+            ProductVO product = item.getProduct();
+
+            content.append(item.getId()).append('|')
+                .append(product.getId()).append('|')
+                .append(product.getName()).append('|')
+                .append(product.getPrice()).append('|')
+                .append(product.getType()).append('\n');
+        }
+
+        String hash = DigestUtils.md5DigestAsHex(
+            content.toString().getBytes(StandardCharsets.UTF_8));
+
+        return idempotencyKeyPrefix + ":" + chunkSequence + ":" + index + ":" + hash;
+    }
+
+    private void writeResponse(List<? extends ApiRequestVO> items, ApiResponseVO responseVO)
+        throws Exception {
+
+        log.info("responseVO={}", responseVO);
+
+        items.forEach(item -> item.setResponseVO(responseVO));
+
+        // transaction 이 commit 될 때 buffer 의 내용이 파일에 기록된다.
+        super.write(items);
+
+        if (responseListener != null) {
+            responseListener.onResponse(items, responseVO);
+        }
+    }
+
+    /**
+     * chunk transaction 이 끝나면 commit 된 상태를 기억하거나, rollback 된 경우 그 상태로 되돌린다.
+     */
+    private void registerSynchronization() {
+
+        if (synchronizationRegistered
+            || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                synchronizationRegistered = false;
+
+                if (status == STATUS_COMMITTED) {
+                    markCommitted();
+                } else {
+                    rollbackToCommitted();
+                }
+            }
+        });
+
+        synchronizationRegistered = true;
+    }
+
+    private void markCommitted() {
+        committedSequence = chunkSequence;
+
+        splitSizes = new ArrayList<>();
+        splitIndex = 0;
+    }
+
+    private void rollbackToCommitted() {
+        pendingRequests = new ArrayList<>();
+        chunkSequence = committedSequence;
+        written = false;
+
+        // 다시 처리할 때 이번 chunk 에서 자른 크기를 처음부터 다시 사용한다.
+        splitIndex = 0;
+    }
+
+    private static class PendingRequest {
+
+        private final List<ApiRequestVO> items;
+        private final CompletableFuture<ApiResponseVO> response;
+
+        private PendingRequest(List<ApiRequestVO> items, CompletableFuture<ApiResponseVO> response) {
+            this.items = items;
+            this.response = response;
+        }
+
+        private List<ApiRequestVO> getItems() {
+            return items;
+        }
+
+        private CompletableFuture<ApiResponseVO> getResponse() {
+            return response;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.springbatchpracticalexam.batch.chunk.writer;
+
+import com.example.springbatchpracticalexam.batch.domain.ApiRequestVO;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.batch.item.support.ClassifierCompositeItemWriter;
+
+/**
+ * ClassifierCompositeItemWriter 로 유형별 ApiItemWriter 에게 위임한 후 이번 chunk 에서 보낸 요청의 응답을 모두 기다려서 기록한다.
+ *
+ * <pre>
+ *      - 비동기 모드에서는 서로 다른 endpoint 로 가는 요청과 같은 endpoint 로 가는 여러 요청이 동시에 진행된다.
+ *      - 예외가 발생하더라도 모든 ApiItemWriter 의 요청을 기다린 후 transaction 을 종료한다.
+ * </pre>
+ */
+public class ApiCompositeItemWriter extends ClassifierCompositeItemWriter<ApiRequestVO> {
+
+    private final Collection<? extends AbstractApiItemWriter> writers;
+
+    public ApiCompositeItemWriter(Collection<? extends AbstractApiItemWriter> writers) {
+        this.writers = writers;
+    }
+
+    @Override
+    public void write(List<? extends ApiRequestVO> items) throws Exception {
+
+        Exception failure = null;
+
+        try {
+            super.write(items);
+        } catch (Exception e) {
+            failure = e;
+        }
+
+        for (AbstractApiItemWriter writer : writers) {
+            try {
+                writer.completeRequests();
+            } catch (Exception e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
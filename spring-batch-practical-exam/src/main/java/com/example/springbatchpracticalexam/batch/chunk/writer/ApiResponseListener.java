@@ -0,0 +1,15 @@
+package com.example.springbatchpracticalexam.batch.chunk.writer;
+
+import com.example.springbatchpracticalexam.batch.domain.ApiRequestVO;
+import com.example.springbatchpracticalexam.batch.domain.ApiResponseVO;
+import java.util.List;
+
+/**
+ * ApiItemWriter 가 응답을 파일에 기록할 때 호출된다.
+ * <p>
+ * 비동기 모드에서는 요청을 보낸 chunk 가 아니라 응답을 기록한 chunk 의 transaction 에서 호출된다.
+ */
+public interface ApiResponseListener {
+
+    void onResponse(List<? extends ApiRequestVO> items, ApiResponseVO responseVO);
+}
@@ -0,0 +1,51 @@
+package com.example.springbatchpracticalexam.batch.chunk.writer;
+
+import com.example.springbatchpracticalexam.batch.domain.Product;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+import javax.sql.DataSource;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Product 를 JDBC batch insert 로 저장한다.
+ *
+ * <pre>
+ *      - JpaItemWriter 처럼 영속성 컨텍스트를 거치지 않고 insert 를 batchSize 개씩 묶어서 실행한다.
+ *      - batchSize 는 chunk 크기와 별개이며, chunk 하나가 여러번의 batch 로 나뉘어 실행된다.
+ *      - MySQL 은 rewriteBatchedStatements=true 이면 batch 를 multi-row insert 로 변환해서 보낸다.
+ * </pre>
+ */
+public class ProductJdbcBatchItemWriter implements ItemWriter<Product> {
+
+    private static final String INSERT_SQL =
+        "insert into product (id, name, price, type, updated_at) values (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final int batchSize;
+
+    public ProductJdbcBatchItemWriter(DataSource dataSource, int batchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void write(List<? extends Product> items) throws Exception {
+
+        jdbcTemplate.batchUpdate(INSERT_SQL, items, batchSize, (ps, product) -> {
+            ps.setLong(1, product.getId());
+            ps.setString(2, product.getName());
+
+            if (product.getPrice() != null) {
+                ps.setLong(3, product.getPrice());
+            } else {
+                ps.setNull(3, Types.BIGINT);
+            }
+
+            ps.setString(4, product.getType());
+            ps.setTimestamp(5, Timestamp.valueOf(product.getUpdatedAt()));
+        });
+    }
+}
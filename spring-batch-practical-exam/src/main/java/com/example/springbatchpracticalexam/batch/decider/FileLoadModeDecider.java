@@ -0,0 +1,38 @@
+package com.example.springbatchpracticalexam.batch.decider;
+
+import com.example.springbatchpracticalexam.batch.tasklet.ProductBulkLoadTasklet;
+import lombok.RequiredArgsConstructor;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.job.flow.FlowExecutionStatus;
+import org.springframework.batch.core.job.flow.JobExecutionDecider;
+import org.springframework.batch.support.DatabaseType;
+
+/**
+ * 제품 파일 적재 방식을 결정한다.
+ *
+ * <pre>
+ *      - bulk : DB 가 CSV 적재를 지원하면 BULK, 아니면 jdbc 와 동일하게 CHUNK
+ *      - jdbc / jpa : CHUNK (chunk 의 writer 가 JDBC batch insert / JPA persist 로 저장)
+ * </pre>
+ */
+@RequiredArgsConstructor
+public class FileLoadModeDecider implements JobExecutionDecider {
+
+    public static final String BULK = "BULK";
+    public static final String CHUNK = "CHUNK";
+
+    private final String loadMode;
+
+    private final DatabaseType databaseType;
+
+    @Override
+    public FlowExecutionStatus decide(JobExecution jobExecution, StepExecution stepExecution) {
+
+        if ("bulk".equalsIgnoreCase(loadMode) && ProductBulkLoadTasklet.supports(databaseType)) {
+            return new FlowExecutionStatus(BULK);
+        }
+
+        return new FlowExecutionStatus(CHUNK);
+    }
+}
@@ -10,5 +10,9 @@ public class ApiInfo {
 
     private String url;
     private List<? extends ApiRequestVO> apiRequestList;
+    /**
+     * 요청 header (Idempotency-Key) 로 전송되며 body 에는 포함되지 않는다.
+     */
+    private String idempotencyKey;
 
 }
@@ -0,0 +1,41 @@
+package com.example.springbatchpracticalexam.batch.domain;
+
+import java.time.LocalDateTime;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Job 이름 + 업무 key (ex. requestDate) 별 실행 선점 기록
+ * <p>
+ * 테이블 생성용 Entity 이며, 선점 / 해제는 JobRunClaimStore 가 unique 제약조건을 이용해 처리한다.
+ */
+@Getter
+@Entity
+@Table(name = "job_run_claim",
+    uniqueConstraints = @UniqueConstraint(name = "uk_job_run_claim",
+        columnNames = {"job_name", "business_key"}))
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class JobRunClaim {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "job_name", nullable = false, length = 100)
+    private String jobName;
+
+    @Column(name = "business_key", nullable = false, length = 100)
+    private String businessKey;
+
+    @Column(name = "claimed_at", nullable = false)
+    private LocalDateTime claimedAt;
+
+}
@@ -1,5 +1,7 @@
 package com.example.springbatchpracticalexam.batch.domain;
 
+import java.time.LocalDateTime;
+import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
@@ -28,12 +30,25 @@ public class Product {
     private Long price;
     private String type;
 
+    /**
+     * 적재 시각
+     * <p>
+     * id 는 파일에 있는 값이라 나중에 적재한 제품의 id 가 더 작을 수 있으므로
+     * apiJob 의 incremental 모드는 id 대신 (updated_at, id) 를 watermark 로 사용한다.
+     * <p>
+     * 이미 데이터가 있는 MySQL 테이블에는 ddl-auto 가 NOT NULL 컬럼을 추가하지 못하므로
+     * schema-mysql.sql 이 기본값과 (type, updated_at, id) index 를 함께 추가한다.
+     */
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
     @Builder
-    private Product(Long id, String name, Long price, String type) {
+    private Product(Long id, String name, Long price, String type, LocalDateTime updatedAt) {
         this.id = id;
         this.name = name;
         this.price = price;
         this.type = type;
+        this.updatedAt = updatedAt;
     }
 
 }
@@ -0,0 +1,36 @@
+package com.example.springbatchpracticalexam.batch.domain;
+
+import java.time.LocalDateTime;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * 제품 유형별로 API 로 전송을 마친 마지막 (updated_at, id) (high-water mark)
+ * <p>
+ * 테이블 생성용 Entity 이며, 조회 / 갱신은 ProductWatermarkStore 가 처리한다.
+ */
+@Getter
+@Entity
+@Table(name = "product_sync_watermark")
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class ProductSyncWatermark {
+
+    @Id
+    @Column(length = 50)
+    private String type;
+
+    @Column(name = "last_updated_at", nullable = false)
+    private LocalDateTime lastUpdatedAt;
+
+    @Column(name = "last_id", nullable = false)
+    private Long lastId;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+}
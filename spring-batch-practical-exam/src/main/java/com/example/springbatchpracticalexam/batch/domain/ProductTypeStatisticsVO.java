@@ -0,0 +1,16 @@
+package com.example.springbatchpracticalexam.batch.domain;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * 제품 유형별 row 수
+ */
+@Data
+@Builder
+public class ProductTypeStatisticsVO {
+
+    private String type;
+    private long count;
+
+}
@@ -1,5 +1,7 @@
 package com.example.springbatchpracticalexam.batch.domain;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import java.time.LocalDateTime;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -13,11 +15,18 @@ public class ProductVO {
     private Long price;
     private String type;
 
+    /**
+     * incremental 모드의 watermark 용이며 api-service 로는 보내지 않는다.
+     */
+    @JsonIgnore
+    private LocalDateTime updatedAt;
+
     @Builder
-    private ProductVO(Long id, String name, Long price, String type) {
+    private ProductVO(Long id, String name, Long price, String type, LocalDateTime updatedAt) {
         this.id = id;
         this.name = name;
         this.price = price;
         this.type = type;
+        this.updatedAt = updatedAt;
     }
 }
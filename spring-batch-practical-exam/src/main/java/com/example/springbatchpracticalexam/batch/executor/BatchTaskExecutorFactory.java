@@ -0,0 +1,89 @@
+package com.example.springbatchpracticalexam.batch.executor;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+
+/**
+ * apiJob / fileJob 의 TaskExecutor 를 batch.executor.mode 에 맞춰 만든다.
+ *
+ * <pre>
+ *      - platform : 각 설정 클래스가 넘겨준 Thread Pool 을 그대로 사용한다.
+ *      - virtual : Task 마다 Virtual Thread 를 만드는 SimpleAsyncTaskExecutor 를 사용한다.
+ *          - forPartitions() : partition 이 DB connection 을 하나씩 사용하므로 connection pool 크기만큼만 동시에 실행한다.
+ *          - forRequests() : 동시 요청 수는 ApiRequestDispatcher 와 ApiEndpointGuard 가 제한하므로 따로 제한하지 않는다.
+ *      - 시작할 때 Virtual Thread 를 만들 수 없으면 (JDK 21 미만) 경고를 한 번 남기고 platform 으로 동작한다.
+ * </pre>
+ */
+@Slf4j
+@Component
+public class BatchTaskExecutorFactory {
+
+    private final boolean virtual;
+
+    private final int maxConnections;
+
+    public BatchTaskExecutorFactory(@Value("${batch.executor.mode:platform}") String mode,
+        @Value("${spring.datasource.hikari.maximum-pool-size:10}") int maxConnections) {
+        this.maxConnections = maxConnections;
+
+        boolean virtualMode = "virtual".equalsIgnoreCase(mode);
+
+        if (virtualMode && virtualThreadFactory("batch-") == null) {
+            log.warn("virtual threads are not supported on Java {}. batch jobs run on platform threads.",
+                System.getProperty("java.version"));
+            virtualMode = false;
+        }
+
+        this.virtual = virtualMode;
+    }
+
+    public AsyncTaskExecutor forPartitions(String threadNamePrefix,
+        Supplier<? extends AsyncTaskExecutor> platformExecutor) {
+        return create(threadNamePrefix, maxConnections, platformExecutor);
+    }
+
+    public AsyncTaskExecutor forRequests(String threadNamePrefix,
+        Supplier<? extends AsyncTaskExecutor> platformExecutor) {
+        return create(threadNamePrefix, SimpleAsyncTaskExecutor.UNBOUNDED_CONCURRENCY, platformExecutor);
+    }
+
+    private AsyncTaskExecutor create(String threadNamePrefix, int concurrencyLimit,
+        Supplier<? extends AsyncTaskExecutor> platformExecutor) {
+
+        if (!virtual) {
+            return platformExecutor.get();
+        }
+
+        SimpleAsyncTaskExecutor taskExecutor = new SimpleAsyncTaskExecutor(threadNamePrefix);
+        taskExecutor.setThreadFactory(virtualThreadFactory(threadNamePrefix));
+        taskExecutor.setConcurrencyLimit(concurrencyLimit);
+
+        log.info("[{}] runs on virtual threads. concurrencyLimit={}", threadNamePrefix, concurrencyLimit);
+
+        return taskExecutor;
+    }
+
+    /**
+     * Thread.ofVirtual().name(prefix, 0).factory() 를 reflection 으로 호출한다. (Java 11 로 컴파일)
+     *
+     * @return 지원하지 않으면 null
+     */
+    private static ThreadFactory virtualThreadFactory(String threadNamePrefix) {
+        try {
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+
+            builder = builderType.getMethod("name", String.class, long.class)
+                .invoke(builder, threadNamePrefix, 0L);
+
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+}
@@ -5,10 +5,24 @@ import org.springframework.batch.core.Job;
 import org.springframework.batch.core.Step;
 import org.springframework.batch.core.configuration.annotation.JobBuilderFactory;
 import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
+import org.springframework.batch.core.job.builder.FlowBuilder;
+import org.springframework.batch.core.job.flow.Flow;
 import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+/**
+ * apiJob 의 jobStep 구성
+ *
+ * <pre>
+ *      - api.job.child-mode
+ *          - inline : apiMasterStep 을 FlowStep 으로 부모 Job 안에서 실행한다.
+ *              - 별도의 JobInstance / JobExecution / JobParameters 를 저장하지 않는다.
+ *              - apiMasterStep 과 partition 의 StepExecution 은 부모 JobExecution 아래에 기록된다.
+ *          - job : childJob 을 JobLauncher 로 실행한다. (JobStep, 기존 방식)
+ * </pre>
+ */
 @RequiredArgsConstructor
 @Configuration
 public class ApiJobChildConfiguration {
@@ -19,11 +33,20 @@ public class ApiJobChildConfiguration {
     private final Step apiMasterStep;
     private final JobLauncher jobLauncher;
 
+    @Value("${api.job.child-mode:inline}")
+    private String childMode;
+
     @Bean
     public Step jobStep() {
+        if ("job".equalsIgnoreCase(childMode)) {
+            return stepBuilderFactory.get("jobStep")
+                .job(childJob())
+                .launcher(jobLauncher)
+                .build();
+        }
+
         return stepBuilderFactory.get("jobStep")
-            .job(childJob())
-            .launcher(jobLauncher)
+            .flow(childFlow())
             .build();
     }
 
@@ -33,4 +56,11 @@ public class ApiJobChildConfiguration {
             .start(apiMasterStep)
             .build();
     }
+
+    @Bean
+    public Flow childFlow() {
+        return new FlowBuilder<Flow>("childFlow")
+            .start(apiMasterStep)
+            .build();
+    }
 }
@@ -22,13 +22,15 @@ public class ApiJobConfiguration {
     private final ApiStartTasklet apiStartTasklet;
     private final ApiEndTasklet apiEndTasklet;
 
+    private final JobListener jobListener;
+
     private final Step jobStep;
 
     @Bean
     public Job apiJob() {
         return jobBuilderFactory.get("apiJob")
             .incrementer(new RunIdIncrementer())
-            .listener(new JobListener())
+            .listener(jobListener)
             .start(apiStep1())
             .next(jobStep)
             .next(apiStep2())
@@ -1,8 +1,12 @@
 package com.example.springbatchpracticalexam.batch.job.api;
 
+import com.example.springbatchpracticalexam.batch.catalog.TableStatisticsCatalog;
 import com.example.springbatchpracticalexam.batch.chunk.processor.ApiItemProcessor1;
 import com.example.springbatchpracticalexam.batch.chunk.processor.ApiItemProcessor2;
 import com.example.springbatchpracticalexam.batch.chunk.processor.ApiItemProcessor3;
+import com.example.springbatchpracticalexam.batch.chunk.policy.RequestBudgetCompletionPolicy;
+import com.example.springbatchpracticalexam.batch.chunk.writer.AbstractApiItemWriter;
+import com.example.springbatchpracticalexam.batch.chunk.writer.ApiCompositeItemWriter;
 import com.example.springbatchpracticalexam.batch.chunk.writer.ApiItemWriter1;
 import com.example.springbatchpracticalexam.batch.chunk.writer.ApiItemWriter2;
 import com.example.springbatchpracticalexam.batch.chunk.writer.ApiItemWriter3;
@@ -10,32 +14,55 @@ import com.example.springbatchpracticalexam.batch.classifier.ProcessorClassifier
 import com.example.springbatchpracticalexam.batch.classifier.WriterClassifier;
 import com.example.springbatchpracticalexam.batch.domain.ApiRequestVO;
 import com.example.springbatchpracticalexam.batch.domain.ProductVO;
+import com.example.springbatchpracticalexam.batch.executor.BatchTaskExecutorFactory;
+import com.example.springbatchpracticalexam.batch.listener.ApiMetricsListener;
 import com.example.springbatchpracticalexam.batch.partition.ProductPartitioner;
+import com.example.springbatchpracticalexam.batch.watermark.ProductWatermark;
+import com.example.springbatchpracticalexam.batch.watermark.ProductWatermarkStore;
+import com.example.springbatchpracticalexam.batch.watermark.ProductWatermarkTracker;
+import com.example.springbatchpracticalexam.metrics.ApiMetricsRegistry;
+import com.example.springbatchpracticalexam.service.AbstractApiService;
 import com.example.springbatchpracticalexam.service.ApiService1;
 import com.example.springbatchpracticalexam.service.ApiService2;
 import com.example.springbatchpracticalexam.service.ApiService3;
+import com.example.springbatchpracticalexam.service.ApiEndpointUnavailableException;
+import com.example.springbatchpracticalexam.service.ApiRequestDispatcher;
+import com.example.springbatchpracticalexam.service.ApiRetryBackOffPolicy;
+import com.example.springbatchpracticalexam.service.ApiServerErrorException;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import javax.sql.DataSource;
 import lombok.RequiredArgsConstructor;
 import org.springframework.batch.core.Step;
+import org.springframework.batch.core.StepExecution;
 import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
 import org.springframework.batch.core.configuration.annotation.StepScope;
 import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.core.step.builder.FaultTolerantStepBuilder;
 import org.springframework.batch.item.ItemProcessor;
-import org.springframework.batch.item.ItemReader;
 import org.springframework.batch.item.ItemWriter;
+import org.springframework.batch.item.database.JdbcPagingItemReader;
 import org.springframework.batch.item.database.Order;
 import org.springframework.batch.item.database.builder.JdbcPagingItemReaderBuilder;
 import org.springframework.batch.item.database.support.MySqlPagingQueryProvider;
 import org.springframework.batch.item.support.builder.ClassifierCompositeItemProcessorBuilder;
-import org.springframework.batch.item.support.builder.ClassifierCompositeItemWriterBuilder;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.task.TaskExecutor;
 import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.retry.backoff.BackOffPolicy;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.client.ResourceAccessException;
 
 @RequiredArgsConstructor
 @Configuration
@@ -45,68 +72,257 @@ public class ApiStepConfiguration {
 
     private final DataSource dataSource;
 
+    private final BatchTaskExecutorFactory taskExecutorFactory;
+
+    private final TableStatisticsCatalog tableStatisticsCatalog;
+
+    private final ProductWatermarkStore productWatermarkStore;
+
     private final ApiService1 apiService1;
     private final ApiService2 apiService2;
     private final ApiService3 apiService3;
 
-    private static final int CHUNK_SIZE = 10;
+    private final ApiRequestDispatcher apiRequestDispatcher;
+
+    private final ApiMetricsRegistry apiMetricsRegistry;
+
+    /**
+     * full : 매번 모든 제품을 전송한다.
+     * incremental : 유형별로 이전 실행에서 응답을 받은 마지막 (updated_at, id) 이후의 제품만 전송한다.
+     */
+    @Value("${api.sync.mode:full}")
+    private String syncMode;
+
+    /**
+     * incremental 모드에서 updated_at 이 이 시간(초) 보다 오래된 제품만 읽는다.
+     * <p>
+     * 적재 시각은 commit 보다 먼저 정해지므로, 적재 transaction 이 끝나기 전에 더 늦은 제품까지 전송해서
+     * watermark 가 지나가 버리지 않도록 적재 transaction 보다 길게 잡는다.
+     */
+    @Value("${api.sync.settle-seconds:60}")
+    private long settleSeconds;
+
+    @Value("${api.writer.async:false}")
+    private boolean asyncWriter;
+
+    @Value("${api.writer.output-dir:output}")
+    private String outputDir;
+
+    /**
+     * true 이면 요청마다 Idempotency-Key 를 보내서 rollback 후 다시 보낸 요청을 api-service 가 중복 처리하지 않는다.
+     */
+    @Value("${api.writer.idempotency:true}")
+    private boolean idempotency;
+
+    /**
+     * 만들어질 partition 수의 목표값 (ProductPartitioner 가 row 수 기준으로 나눈다)
+     */
+    @Value("${api.step.grid-size:3}")
+    private int gridSize;
+
+    /**
+     * transaction(commit) 단위의 최소 크기
+     * <p>
+     * 요청 예산이 더 크면 max-chunk-size 까지 예산만큼 읽는다. (RequestBudgetCompletionPolicy)
+     */
+    @Value("${api.step.chunk-size:10}")
+    private int chunkSize;
+
+    @Value("${api.step.max-chunk-size:100}")
+    private int maxChunkSize;
+
+    /**
+     * JdbcPagingItemReader 가 한번에 읽는 row 수
+     * <p>
+     * API 요청 하나에 담기는 item 수는 ApiRequestBatcher 가 따로 정한다.
+     */
+    @Value("${api.step.page-size:10}")
+    private int pageSize;
+
+    /**
+     * endpoint 를 사용할 수 없을 때 chunk 를 다시 처리하는 횟수와 대기 시간
+     * <p>
+     * Circuit Breaker 가 열린 경우에는 ApiRetryBackOffPolicy 가 HALF_OPEN 이 될 때까지 기다리므로
+     * 재시도 횟수는 동시 요청 한도 / 5xx 로 실패한 경우의 대기 시간 합계 기준으로 정한다.
+     * ex) 6회, 500ms 부터 2배 : 0.5 + 1 + 2 + 4 + 8 = 15.5초
+     */
+    @Value("${api.step.retry-limit:6}")
+    private int retryLimit;
+
+    @Value("${api.step.backoff-initial-millis:500}")
+    private long backoffInitialMillis;
+
+    @Value("${api.step.backoff-max-millis:10000}")
+    private long backoffMaxMillis;
 
     @Bean
     public Step apiMasterStep() {
         return stepBuilderFactory.get("apiMasterStep")
+            .listener(apiMetricsMergeListener())
             .partitioner(apiSlaveStep().getName(), partitioner())
             .step(apiSlaveStep())
-            .gridSize(3)
+            .gridSize(gridSize)
             .taskExecutor(taskExecutor())
             .build();
     }
 
     @Bean
     public TaskExecutor taskExecutor() {
-        ThreadPoolTaskExecutor taskExecutor = new ThreadPoolTaskExecutor();
-        taskExecutor.setCorePoolSize(3);
-        taskExecutor.setMaxPoolSize(6);
-        taskExecutor.setThreadNamePrefix("api-thread-");
+        return taskExecutorFactory.forPartitions("api-thread-", () -> {
+            ThreadPoolTaskExecutor taskExecutor = new ThreadPoolTaskExecutor();
+            taskExecutor.setCorePoolSize(3);
+            taskExecutor.setMaxPoolSize(6);
+            taskExecutor.setThreadNamePrefix("api-thread-");
 
-        return taskExecutor;
+            return taskExecutor;
+        });
     }
 
     @Bean
     public Step apiSlaveStep() {
-        return stepBuilderFactory.get("apiSlaveStep")
-            .<ProductVO, ApiRequestVO>chunk(CHUNK_SIZE)
-            .reader(itemReader(null))
+        FaultTolerantStepBuilder<ProductVO, ApiRequestVO> builder = stepBuilderFactory.get("apiSlaveStep")
+            .<ProductVO, ApiRequestVO>chunk(chunkCompletionPolicy(null, null))
+            .reader(itemReader(null, null, null, null))
             .processor(itemProcessor())
             .writer(itemWriter())
-            .build();
+            /*
+             * endpoint 가 차단되었거나 동시 요청 한도가 가득 찬 경우, 5xx 응답 / 연결 실패 / timeout 인 경우
+             * chunk 를 rollback 하고 점점 길게 기다렸다가 다시 처리한다.
+             */
+            .faultTolerant()
+            .retry(ApiEndpointUnavailableException.class)
+            .retry(ApiServerErrorException.class)
+            .retry(ResourceAccessException.class)
+            .retryLimit(retryLimit)
+            .backOffPolicy(backOffPolicy())
+            /*
+             * ClassifierCompositeItemWriter 는 ItemStream 이 아니기 때문에
+             * 파일을 기록하는 ApiItemWriter 들을 직접 Stream 으로 등록해서 open / update / close 가 호출되도록 한다.
+             */
+            .stream(apiItemWriter1(null))
+            .stream(apiItemWriter2(null))
+            .stream(apiItemWriter3(null));
+
+        builder.listener(apiMetricsListener());
+
+        // 응답을 받은 마지막 (updated_at, id) 를 chunk 와 같은 transaction 으로 저장한다.
+        if (isIncremental()) {
+            builder.listener(productWatermarkTracker());
+            builder.stream(productWatermarkTracker());
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * partition 별 요청 지표를 partition 의 ExecutionContext 에 기록한다.
+     */
+    @Bean
+    public ApiMetricsListener apiMetricsListener() {
+        return new ApiMetricsListener(apiMetricsRegistry, null);
+    }
+
+    /**
+     * partition 들의 요청 지표를 합쳐서 Job 의 ExecutionContext 에 기록한다.
+     */
+    @Bean
+    public ApiMetricsListener apiMetricsMergeListener() {
+        return new ApiMetricsListener(apiMetricsRegistry, "apiSlaveStep");
     }
 
     @Bean
     public Partitioner partitioner() {
-        return new ProductPartitioner(dataSource);
+        ProductPartitioner partitioner = new ProductPartitioner(tableStatisticsCatalog);
+
+        // watermark 는 유형 단위이므로 유형 하나를 여러 partition 으로 나누지 않는다.
+        partitioner.setSplitTypes(!isIncremental());
+
+        return partitioner;
+    }
+
+    /**
+     * partition 이 보내는 endpoint 들의 요청 예산 중 가장 큰 값으로 다음 chunk 크기를 정한다.
+     */
+    @Bean
+    @StepScope
+    public RequestBudgetCompletionPolicy chunkCompletionPolicy(
+        @Value("#{stepExecutionContext['product']}") ProductVO productVO,
+        @Value("#{stepExecutionContext['types']}") String types) {
+
+        List<String> typeList =
+            types != null ? Arrays.asList(types.split(",")) : List.of(productVO.getType());
+        Map<String, AbstractApiService> apiServices = Map.of(
+            "1", apiService1,
+            "2", apiService2,
+            "3", apiService3);
+
+        return new RequestBudgetCompletionPolicy(() -> typeList.stream()
+            .map(apiServices::get)
+            .filter(Objects::nonNull)
+            .mapToInt(AbstractApiService::getItemBudget)
+            .max()
+            .orElse(chunkSize), chunkSize, maxChunkSize);
     }
 
     @Bean
     @StepScope
-    public ItemReader<ProductVO> itemReader(
-        @Value("#{stepExecutionContext['product']}") ProductVO productVO) {
+    public JdbcPagingItemReader<ProductVO> itemReader(
+        @Value("#{stepExecutionContext['product']}") ProductVO productVO,
+        @Value("#{stepExecutionContext['types']}") String types,
+        @Value("#{stepExecutionContext['minId']}") Long minId,
+        @Value("#{stepExecutionContext['maxId']}") Long maxId) {
+
+        Map<String, Order> sortKeys = new LinkedHashMap<>();
+
+        // incremental 모드는 watermark 를 앞으로 옮길 수 있도록 (updated_at, id) 오름차순으로 읽는다.
+        if (isIncremental()) {
+            sortKeys.put("updated_at", Order.ASCENDING);
+            sortKeys.put("id", Order.ASCENDING);
+        } else {
+            sortKeys.put("id", Order.DESCENDING);
+        }
+
+        Map<String, Object> parameters = new HashMap<>();
+
+        // types 가 없는 경우 기존처럼 product 의 유형 하나만 읽는다.
+        List<String> typeList =
+            types != null ? Arrays.asList(types.split(",")) : List.of(productVO.getType());
+        parameters.put("types", typeList);
+
+        StringBuilder whereClause = new StringBuilder("where type in (:types)");
+
+        if (isIncremental()) {
+            appendWatermarkCondition(typeList, whereClause, parameters);
+
+            whereClause.append(" and updated_at <= :settledAt");
+            parameters.put("settledAt",
+                Timestamp.valueOf(LocalDateTime.now().minusSeconds(settleSeconds)));
+        }
 
-        Map<String, Order> sortKeys = new HashMap<>();
-        sortKeys.put("id", Order.DESCENDING);
+        // id 범위로 나눈 partition 의 첫번째 / 마지막 범위는 한쪽 끝이 없다.
+        if (minId != null) {
+            whereClause.append(" and id >= :minId");
+            parameters.put("minId", minId);
+        }
+
+        if (maxId != null) {
+            whereClause.append(" and id <= :maxId");
+            parameters.put("maxId", maxId);
+        }
 
         MySqlPagingQueryProvider queryProvider = new MySqlPagingQueryProvider();
 
-        queryProvider.setSelectClause("id, name, price, type");
+        queryProvider.setSelectClause("id, name, price, type, updated_at");
         queryProvider.setFromClause("from product");
-        queryProvider.setWhereClause("where type = :type");
+        queryProvider.setWhereClause(whereClause.toString());
         queryProvider.setSortKeys(sortKeys);
 
         return new JdbcPagingItemReaderBuilder<ProductVO>()
             .name("jdbc-paging-reader")
             .dataSource(dataSource)
-            .pageSize(CHUNK_SIZE)
+            .pageSize(pageSize)
             .rowMapper(new BeanPropertyRowMapper<>(ProductVO.class))
-            .parameterValues(QueryGenerator.getParameterForQuery("type", productVO.getType()))
+            .parameterValues(parameters)
             .queryProvider(queryProvider)
             .build();
     }
@@ -130,22 +346,123 @@ public class ApiStepConfiguration {
 
     }
 
+    /**
+     * partition 마다 독립적인 ApiItemWriter 를 가지도록 @StepScope 로 선언한다.
+     * <p>
+     * 비동기 모드에서 처리중인 요청 목록을 partition thread 간 공유하지 않기 위함이다.
+     */
     @Bean
+    @StepScope
     public ItemWriter<ApiRequestVO> itemWriter() {
 
-        Map<String, ItemWriter<ApiRequestVO>> writerMap = new HashMap<>();
+        Map<String, AbstractApiItemWriter> writerMap = new HashMap<>();
 
-        writerMap.put("1", new ApiItemWriter1(apiService1));
-        writerMap.put("2", new ApiItemWriter2(apiService2));
-        writerMap.put("3", new ApiItemWriter3(apiService3));
+        writerMap.put("1", apiItemWriter1(null));
+        writerMap.put("2", apiItemWriter2(null));
+        writerMap.put("3", apiItemWriter3(null));
 
         WriterClassifier<ApiRequestVO, ItemWriter<? super ApiRequestVO>> classifier = new WriterClassifier<>();
 
-        classifier.setWriterMap(writerMap);
+        classifier.setWriterMap(new HashMap<>(writerMap));
 
-        return new ClassifierCompositeItemWriterBuilder<ApiRequestVO>()
-            .classifier(classifier)
-            .build();
+        ApiCompositeItemWriter itemWriter = new ApiCompositeItemWriter(writerMap.values());
+        itemWriter.setClassifier(classifier);
+
+        return itemWriter;
+    }
+
+    @Bean
+    @StepScope
+    public ApiItemWriter1 apiItemWriter1(@Value("#{stepExecution}") StepExecution stepExecution) {
+        return configureApiItemWriter(new ApiItemWriter1(apiService1), "product1", stepExecution);
+    }
+
+    @Bean
+    @StepScope
+    public ApiItemWriter2 apiItemWriter2(@Value("#{stepExecution}") StepExecution stepExecution) {
+        return configureApiItemWriter(new ApiItemWriter2(apiService2), "product2", stepExecution);
+    }
+
+    @Bean
+    @StepScope
+    public ApiItemWriter3 apiItemWriter3(@Value("#{stepExecution}") StepExecution stepExecution) {
+        return configureApiItemWriter(new ApiItemWriter3(apiService3), "product3", stepExecution);
+    }
+
+    /**
+     * partition 마다 자신만의 파일에 기록한다.
+     * <p>
+     * 같은 JobInstance 로 재시작할 경우 같은 파일을 열어서 마지막으로 commit 된 위치부터 이어서 기록한다.
+     */
+    private <T extends AbstractApiItemWriter> T configureApiItemWriter(T writer, String name,
+        StepExecution stepExecution) {
+
+        // stepName = apiSlaveStep:partition-0
+        String stepName = stepExecution.getStepName();
+        String partitionName = stepName.substring(stepName.indexOf(':') + 1);
+        Long jobInstanceId = stepExecution.getJobExecution().getJobInstance().getInstanceId();
+
+        writer.setName(name + "-writer");
+        writer.setResource(new FileSystemResource(
+            Paths.get(outputDir, name + "_" + jobInstanceId + "_" + partitionName + ".txt")
+                .toFile()));
+
+        if (asyncWriter) {
+            writer.setApiRequestDispatcher(apiRequestDispatcher);
+        }
+
+        if (idempotency) {
+            writer.setIdempotencyKeyPrefix(jobInstanceId + ":" + partitionName + ":" + name);
+        }
+
+        // 응답을 받은 제품까지만 watermark 를 옮긴다.
+        if (isIncremental()) {
+            writer.setResponseListener(productWatermarkTracker());
+        }
+
+        return writer;
+    }
+
+    @Bean
+    @StepScope
+    public ProductWatermarkTracker productWatermarkTracker() {
+        return new ProductWatermarkTracker(productWatermarkStore);
+    }
+
+    /**
+     * 유형별로 watermark 이후의 (updated_at, id) 만 읽는다.
+     * <p>
+     * ex) and ((type = :type0 and (updated_at > :watermarkAt0 or (updated_at = :watermarkAt0 and id > :watermarkId0))) or (type = :type1))
+     */
+    private void appendWatermarkCondition(List<String> types, StringBuilder whereClause,
+        Map<String, Object> parameters) {
+
+        List<String> conditions = new ArrayList<>();
+
+        for (int i = 0; i < types.size(); i++) {
+            ProductWatermark watermark = productWatermarkStore.find(types.get(i));
+
+            parameters.put("type" + i, types.get(i));
+
+            if (watermark == null) {
+                conditions.add("(type = :type" + i + ")");
+            } else {
+                conditions.add("(type = :type" + i + " and (updated_at > :watermarkAt" + i
+                    + " or (updated_at = :watermarkAt" + i + " and id > :watermarkId" + i + ")))");
+                parameters.put("watermarkAt" + i, Timestamp.valueOf(watermark.getUpdatedAt()));
+                parameters.put("watermarkId" + i, watermark.getId());
+            }
+        }
+
+        whereClause.append(" and (").append(String.join(" or ", conditions)).append(")");
+    }
+
+    private boolean isIncremental() {
+        return "incremental".equalsIgnoreCase(syncMode);
+    }
+
+    private BackOffPolicy backOffPolicy() {
+        return new ApiRetryBackOffPolicy(backoffInitialMillis, backoffMaxMillis, 2.0);
     }
 
 }
@@ -1,22 +1,32 @@
 package com.example.springbatchpracticalexam.batch.job.api;
 
-import com.example.springbatchpracticalexam.batch.domain.ProductVO;
+import com.example.springbatchpracticalexam.batch.catalog.TableStatisticsCatalog;
+import com.example.springbatchpracticalexam.batch.domain.ProductTypeStatisticsVO;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import javax.sql.DataSource;
-import org.springframework.jdbc.core.JdbcTemplate;
+import java.util.stream.Collectors;
 
 public class QueryGenerator {
 
-    public static ProductVO[] getProductList(DataSource dataSource) {
-        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+    public static List<ProductTypeStatisticsVO> getProductStatistics(TableStatisticsCatalog catalog) {
 
-        List<ProductVO> list = jdbcTemplate.query("select type from product group by type",
-            (rs, rowNum) -> ProductVO.builder().type(rs.getString("type")).build());
+        return catalog.getGroupStatistics("product", "type").stream()
+            .map(statistics -> ProductTypeStatisticsVO.builder()
+                .type(statistics.getGroup())
+                .count(statistics.getCount())
+                .build())
+            .collect(Collectors.toList());
+    }
 
-        return list.toArray(new ProductVO[]{});
+    /**
+     * 해당 유형을 id 순으로 정렬했을 때 offset 번째 id
+     * <p>
+     * id 로 정렬된 index 를 따라가기 때문에 id 가 고르게 분포되어 있지 않아도 row 수 기준으로 나눌 수 있다.
+     */
+    public static Long getProductIdAt(TableStatisticsCatalog catalog, String type, long offset) {
 
+        return catalog.getKeyAtOffset("product", "id", "type", type, offset);
     }
 
     public static Map<String, Object> getParameterForQuery(String parameter, String value) {
@@ -1,9 +1,22 @@
 package com.example.springbatchpracticalexam.batch.job.file;
 
+import com.example.springbatchpracticalexam.batch.catalog.TableStatisticsCatalog;
 import com.example.springbatchpracticalexam.batch.chunk.processor.FileItemProcessor;
+import com.example.springbatchpracticalexam.batch.chunk.reader.ByteRangeLineItemReader;
+import com.example.springbatchpracticalexam.batch.chunk.writer.ProductJdbcBatchItemWriter;
+import com.example.springbatchpracticalexam.batch.decider.FileLoadModeDecider;
 import com.example.springbatchpracticalexam.batch.domain.Product;
 import com.example.springbatchpracticalexam.batch.domain.ProductVO;
+import com.example.springbatchpracticalexam.batch.executor.BatchTaskExecutorFactory;
+import com.example.springbatchpracticalexam.batch.listener.StatisticsInvalidationListener;
+import com.example.springbatchpracticalexam.batch.partition.FileByteRangePartitioner;
+import com.example.springbatchpracticalexam.batch.tasklet.ProductBulkLoadTasklet;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
 import lombok.RequiredArgsConstructor;
 import org.springframework.batch.core.Job;
 import org.springframework.batch.core.Step;
@@ -14,14 +27,37 @@ import org.springframework.batch.core.launch.support.RunIdIncrementer;
 import org.springframework.batch.item.ItemProcessor;
 import org.springframework.batch.item.ItemWriter;
 import org.springframework.batch.item.database.builder.JpaItemWriterBuilder;
-import org.springframework.batch.item.file.FlatFileItemReader;
-import org.springframework.batch.item.file.builder.FlatFileItemReaderBuilder;
+import org.springframework.batch.item.file.LineMapper;
 import org.springframework.batch.item.file.mapping.BeanWrapperFieldSetMapper;
+import org.springframework.batch.item.file.mapping.DefaultLineMapper;
+import org.springframework.batch.item.file.transform.DelimitedLineTokenizer;
+import org.springframework.batch.support.DatabaseType;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.util.StringUtils;
 
+/**
+ * 제품 파일 적재 Job
+ *
+ * <pre>
+ *      - file.load.mode
+ *          - bulk : DB 의 CSV 적재 기능 (H2 CSVREAD / MySQL LOAD DATA LOCAL INFILE) 으로 한번에 적재한다.
+ *                   지원하지 않는 DB 이면 jdbc 로 동작한다.
+ *          - jdbc : chunk 단위로 읽고 JDBC batch insert 로 저장한다.
+ *          - jpa : chunk 단위로 읽고 JPA persist 로 저장한다. (기존 방식)
+ *
+ *      - fileStep (jdbc / jpa) 은 파일을 줄 단위로 정렬된 byte 범위로 나누어 partition 마다 병렬로 읽는다.
+ *          - partition 마다 읽은 위치를 StepExecution 에 저장하므로 실패한 범위만 이어서 재시작한다.
+ *      - file.input-dir 이 없으면 classpath 의 파일을 읽는다. (jar 안의 파일은 partition 으로 읽을 수 없다)
+ * </pre>
+ */
 @RequiredArgsConstructor
 @Configuration
 public class FileJobConfiguration {
@@ -31,19 +67,67 @@ public class FileJobConfiguration {
 
     private final EntityManagerFactory entityManagerFactory;
 
+    private final DataSource dataSource;
+
+    private final BatchTaskExecutorFactory taskExecutorFactory;
+
+    private final TableStatisticsCatalog tableStatisticsCatalog;
+
+    @Value("${file.load.mode:bulk}")
+    private String loadMode;
+
+    @Value("${file.load.jdbc-batch-size:500}")
+    private int jdbcBatchSize;
+
+    @Value("${file.step.chunk-size:10}")
+    private int chunkSize;
+
+    @Value("${file.step.grid-size:4}")
+    private int gridSize;
+
+    @Value("${file.input-dir:}")
+    private String inputDir;
+
     @Bean
-    public Job fileJob() {
+    public Job fileJob() throws MetaDataAccessException {
         return jobBuilderFactory.get("fileJob")
             .incrementer(new RunIdIncrementer())
-            .start(fileStep())
+            .listener(new StatisticsInvalidationListener(tableStatisticsCatalog, "product"))
+            .start(fileLoadModeDecider())
+                .on(FileLoadModeDecider.BULK).to(fileBulkStep())
+            .from(fileLoadModeDecider())
+                .on("*").to(fileStep())
+            .end()
+            .build();
+    }
+
+    @Bean
+    public FileLoadModeDecider fileLoadModeDecider() throws MetaDataAccessException {
+        return new FileLoadModeDecider(loadMode, DatabaseType.fromMetaData(dataSource));
+    }
+
+    @Bean
+    public Step fileBulkStep() {
+        return stepBuilderFactory.get("fileBulkStep")
+            .tasklet(productBulkLoadTasklet(null))
             .build();
     }
 
     @Bean
     public Step fileStep() {
         return stepBuilderFactory.get("fileStep")
-            .<ProductVO, Product>chunk(10)
-            .reader(fileItemReader(null))
+            .partitioner(fileSlaveStep().getName(), filePartitioner(null))
+            .step(fileSlaveStep())
+            .gridSize(gridSize)
+            .taskExecutor(fileTaskExecutor())
+            .build();
+    }
+
+    @Bean
+    public Step fileSlaveStep() {
+        return stepBuilderFactory.get("fileSlaveStep")
+            .<ProductVO, Product>chunk(chunkSize)
+            .reader(fileItemReader(null, null, null))
             .processor(fileItemProcessor())
             .writer(fileItemWriter())
             .build();
@@ -51,17 +135,47 @@ public class FileJobConfiguration {
 
     @Bean
     @StepScope
-    public FlatFileItemReader<ProductVO> fileItemReader(
+    public ProductBulkLoadTasklet productBulkLoadTasklet(
         @Value("#{jobParameters['requestDate']}") String requestDate) {
-        return new FlatFileItemReaderBuilder<ProductVO>()
-            .name("flat-file-reader")
-            .resource(new ClassPathResource("product_" + requestDate + ".csv"))
-            .fieldSetMapper(new BeanWrapperFieldSetMapper<>())
-            .targetType(ProductVO.class)
-            .linesToSkip(1)
-            .delimited().delimiter(",")
-            .names("id", "name", "price", "type")
-            .build();
+        try {
+            return new ProductBulkLoadTasklet(dataSource, DatabaseType.fromMetaData(dataSource),
+                productFile(requestDate));
+        } catch (MetaDataAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Bean
+    @StepScope
+    public FileByteRangePartitioner filePartitioner(
+        @Value("#{jobParameters['requestDate']}") String requestDate) {
+        return new FileByteRangePartitioner(productPath(requestDate), 1);
+    }
+
+    @Bean
+    @StepScope
+    public ByteRangeLineItemReader<ProductVO> fileItemReader(
+        @Value("#{jobParameters['requestDate']}") String requestDate,
+        @Value("#{stepExecutionContext['startOffset']}") Long startOffset,
+        @Value("#{stepExecutionContext['endOffset']}") Long endOffset) {
+
+        ByteRangeLineItemReader<ProductVO> reader = new ByteRangeLineItemReader<>(
+            productPath(requestDate), startOffset, endOffset, productLineMapper());
+        reader.setName("byte-range-reader");
+
+        return reader;
+    }
+
+    @Bean
+    public TaskExecutor fileTaskExecutor() {
+        return taskExecutorFactory.forPartitions("file-thread-", () -> {
+            ThreadPoolTaskExecutor taskExecutor = new ThreadPoolTaskExecutor();
+            taskExecutor.setCorePoolSize(gridSize);
+            taskExecutor.setMaxPoolSize(gridSize);
+            taskExecutor.setThreadNamePrefix("file-thread-");
+
+            return taskExecutor;
+        });
     }
 
     @Bean
@@ -71,10 +185,44 @@ public class FileJobConfiguration {
 
     @Bean
     public ItemWriter<Product> fileItemWriter() {
-        return new JpaItemWriterBuilder<Product>()
-            .entityManagerFactory(entityManagerFactory)
-            .usePersist(true)
-            .build();
+        if ("jpa".equalsIgnoreCase(loadMode)) {
+            return new JpaItemWriterBuilder<Product>()
+                .entityManagerFactory(entityManagerFactory)
+                .usePersist(true)
+                .build();
+        }
+
+        return new ProductJdbcBatchItemWriter(dataSource, jdbcBatchSize);
+    }
+
+    private LineMapper<ProductVO> productLineMapper() {
+        DelimitedLineTokenizer tokenizer = new DelimitedLineTokenizer(",");
+        tokenizer.setNames("id", "name", "price", "type");
+
+        BeanWrapperFieldSetMapper<ProductVO> fieldSetMapper = new BeanWrapperFieldSetMapper<>();
+        fieldSetMapper.setTargetType(ProductVO.class);
+
+        DefaultLineMapper<ProductVO> lineMapper = new DefaultLineMapper<>();
+        lineMapper.setLineTokenizer(tokenizer);
+        lineMapper.setFieldSetMapper(fieldSetMapper);
+
+        return lineMapper;
+    }
+
+    private Resource productFile(String requestDate) {
+        String fileName = "product_" + requestDate + ".csv";
+
+        return StringUtils.hasText(inputDir)
+            ? new FileSystemResource(Paths.get(inputDir, fileName))
+            : new ClassPathResource(fileName);
+    }
+
+    private Path productPath(String requestDate) {
+        try {
+            return productFile(requestDate).getFile().toPath();
+        } catch (IOException e) {
+            throw new UncheckedIOException("product file of " + requestDate + " is not a file", e);
+        }
     }
 
 }
@@ -0,0 +1,55 @@
+package com.example.springbatchpracticalexam.batch.listener;
+
+import com.example.springbatchpracticalexam.metrics.ApiMetricsRegistry;
+import java.util.List;
+import java.util.stream.Collectors;
+import lombok.RequiredArgsConstructor;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+
+/**
+ * ApiMetricsRegistry 에 기록된 요청 지표를 ExecutionContext 에 옮긴다.
+ *
+ * <pre>
+ *      - partitionStepName 이 없으면 partition step 에 등록된 것으로,
+ *        step 이 시작할 때 지표 기록을 시작하고 끝나면 그 step 의 지표를 step 의 ExecutionContext 에 기록한다.
+ *      - partitionStepName 이 있으면 partition 을 나눈 step 에 등록된 것으로,
+ *        같은 JobExecution 의 partition step 들의 지표를 합쳐서 Job 의 ExecutionContext 에 기록한다.
+ *          - 실패한 step 도 보낸 요청이 있으므로 상태와 관계없이 기록한다.
+ *          - api.job.child-mode=job 이면 childJob 의 ExecutionContext 에 기록된다.
+ * </pre>
+ */
+@RequiredArgsConstructor
+public class ApiMetricsListener implements StepExecutionListener {
+
+    private final ApiMetricsRegistry registry;
+
+    private final String partitionStepName;
+
+    @Override
+    public void beforeStep(StepExecution stepExecution) {
+
+        if (partitionStepName == null) {
+            registry.open(stepExecution);
+        }
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+
+        if (partitionStepName == null) {
+            registry.publish(stepExecution);
+            return null;
+        }
+
+        // partition step 이름 = partitionStepName:partition-N
+        List<StepExecution> partitions = stepExecution.getJobExecution().getStepExecutions().stream()
+            .filter(execution -> execution.getStepName().startsWith(partitionStepName + ":"))
+            .collect(Collectors.toList());
+
+        registry.merge(partitions, stepExecution.getJobExecution().getExecutionContext());
+
+        return null;
+    }
+}
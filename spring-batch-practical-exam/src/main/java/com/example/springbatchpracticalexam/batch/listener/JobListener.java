@@ -1,12 +1,23 @@
 package com.example.springbatchpracticalexam.batch.listener;
 
+import com.example.springbatchpracticalexam.metrics.ApiMetricsRegistry;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
 import org.springframework.batch.core.JobExecution;
 import org.springframework.batch.core.JobExecutionListener;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.stereotype.Component;
 
 @Slf4j
+@Component
+@RequiredArgsConstructor
 public class JobListener implements JobExecutionListener {
 
+    private final PoolingHttpClientConnectionManager apiConnectionManager;
+
     @Override
     public void beforeJob(JobExecution jobExecution) {
 
@@ -19,5 +30,67 @@ public class JobListener implements JobExecutionListener {
 
         log.info("총 소요시간 : {} ms", time);
 
+        logPoolStats(jobExecution);
+
+        logApiMetrics(jobExecution);
+
+    }
+
+    /**
+     * endpoint 별 요청 처리 시간 분포
+     * <p>
+     * 전체 소요시간이 길어졌을 때 특정 endpoint 의 tail latency (p99 / p999) 때문인지 확인한다.
+     * <p>
+     * 지표는 apiMasterStep 이 끝날 때 ApiMetricsListener 가 Job 의 ExecutionContext 에 기록한다.
+     */
+    private void logApiMetrics(JobExecution jobExecution) {
+
+        ExecutionContext executionContext = jobExecution.getExecutionContext();
+
+        executionContext.entrySet().stream()
+            .map(Map.Entry::getKey)
+            .filter(key -> key.startsWith(ApiMetricsRegistry.PREFIX) && key.endsWith(".count"))
+            .sorted()
+            .forEach(key -> {
+                String prefix = key.substring(0, key.length() - "count".length());
+
+                log.info("{} - requests={}, failures={}, items={}, bytes={}, "
+                        + "p50={}us, p99={}us, p999={}us, max={}us",
+                    prefix.substring(ApiMetricsRegistry.PREFIX.length(), prefix.length() - 1),
+                    executionContext.getLong(prefix + "count"),
+                    executionContext.getLong(prefix + "failures"),
+                    executionContext.getLong(prefix + "items"),
+                    executionContext.getLong(prefix + "bytes"),
+                    executionContext.getLong(prefix + "p50"),
+                    executionContext.getLong(prefix + "p99"),
+                    executionContext.getLong(prefix + "p999"),
+                    executionContext.getLong(prefix + "max"));
+            });
+    }
+
+    /**
+     * Job 종료 시점의 Connection Pool 상태
+     * <p>
+     * pending 이 계속 0 보다 크다면 max-per-route 가 partition 수에 비해 작다는 의미이다.
+     */
+    private void logPoolStats(JobExecution jobExecution) {
+
+        PoolStats totalStats = apiConnectionManager.getTotalStats();
+
+        log.info("connection pool total - leased={}, pending={}, available={}, max={}",
+            totalStats.getLeased(), totalStats.getPending(), totalStats.getAvailable(),
+            totalStats.getMax());
+
+        apiConnectionManager.getRoutes().forEach(route -> {
+            PoolStats routeStats = apiConnectionManager.getStats(route);
+
+            log.info("connection pool route={} - leased={}, pending={}, available={}, max={}",
+                route.getTargetHost(), routeStats.getLeased(), routeStats.getPending(),
+                routeStats.getAvailable(), routeStats.getMax());
+        });
+
+        jobExecution.getExecutionContext().putInt("pool.leased", totalStats.getLeased());
+        jobExecution.getExecutionContext().putInt("pool.pending", totalStats.getPending());
+        jobExecution.getExecutionContext().putInt("pool.available", totalStats.getAvailable());
     }
 }
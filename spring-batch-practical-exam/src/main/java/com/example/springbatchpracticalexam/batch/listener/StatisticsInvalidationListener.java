@@ -0,0 +1,29 @@
+package com.example.springbatchpracticalexam.batch.listener;
+
+import com.example.springbatchpracticalexam.batch.catalog.TableStatisticsCatalog;
+import lombok.RequiredArgsConstructor;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobExecutionListener;
+
+/**
+ * 테이블에 데이터를 적재하는 Job 이 끝나면 캐시된 통계를 만료시킨다.
+ * <p>
+ * 실패한 Job 도 이미 commit 된 chunk 가 있을 수 있기 때문에 상태와 관계없이 만료시킨다.
+ */
+@RequiredArgsConstructor
+public class StatisticsInvalidationListener implements JobExecutionListener {
+
+    private final TableStatisticsCatalog catalog;
+
+    private final String table;
+
+    @Override
+    public void beforeJob(JobExecution jobExecution) {
+
+    }
+
+    @Override
+    public void afterJob(JobExecution jobExecution) {
+        catalog.invalidate(table);
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.springbatchpracticalexam.batch.partition;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.item.ExecutionContext;
+
+/**
+ * 하나의 구분자 파일을 줄 단위로 정렬된 byte 범위로 나눈다.
+ *
+ * <pre>
+ *      - 파일 크기 / gridSize 위치에서 다음 줄의 시작 위치를 찾아 경계로 삼는다.
+ *          - 모든 범위가 줄의 시작에서 시작해서 줄의 끝에서 끝나므로 reader 는 범위 밖을 볼 필요가 없다.
+ *      - header 줄 (linesToSkip) 은 첫번째 범위에서 제외한다.
+ *      - 줄이 범위보다 길면 범위가 비게 되고, 빈 범위는 만들지 않는다.
+ *
+ *      - ExecutionContext
+ *          - startOffset : 범위의 첫번째 byte (포함)
+ *          - endOffset : 범위의 마지막 byte 다음 위치 (미포함)
+ * </pre>
+ */
+public class FileByteRangePartitioner implements Partitioner {
+
+    public static final String START_OFFSET = "startOffset";
+    public static final String END_OFFSET = "endOffset";
+
+    private final Path path;
+
+    private final int linesToSkip;
+
+    public FileByteRangePartitioner(Path path, int linesToSkip) {
+        this.path = path;
+        this.linesToSkip = linesToSkip;
+    }
+
+    @Override
+    public Map<String, ExecutionContext> partition(int gridSize) {
+
+        Map<String, ExecutionContext> result = new HashMap<>();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+
+            long size = channel.size();
+
+            long start = 0;
+            for (int i = 0; i < linesToSkip; i++) {
+                start = skipLine(channel, start, size);
+            }
+
+            long rangeSize = Math.max(1, (size - start + gridSize - 1) / Math.max(1, gridSize));
+
+            while (start < size) {
+                long end = start + rangeSize >= size ? size
+                    // 바로 앞 byte 부터 찾아야 경계가 이미 줄의 시작인 경우도 그대로 유지된다.
+                    : skipLine(channel, start + rangeSize - 1, size);
+
+                ExecutionContext value = new ExecutionContext();
+                value.putLong(START_OFFSET, start);
+                value.putLong(END_OFFSET, end);
+
+                result.put("partition-" + result.size(), value);
+
+                start = end;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("failed to partition " + path, e);
+        }
+
+        return result;
+    }
+
+    /**
+     * position 부터 처음 만나는 줄바꿈의 다음 위치 (없으면 파일 크기)
+     */
+    private long skipLine(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+
+            position += read;
+        }
+
+        return size;
+    }
+}
@@ -1,38 +1,149 @@
 package com.example.springbatchpracticalexam.batch.partition;
 
+import com.example.springbatchpracticalexam.batch.catalog.TableStatisticsCatalog;
+import com.example.springbatchpracticalexam.batch.domain.ProductTypeStatisticsVO;
 import com.example.springbatchpracticalexam.batch.domain.ProductVO;
 import com.example.springbatchpracticalexam.batch.job.api.QueryGenerator;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import javax.sql.DataSource;
 import lombok.RequiredArgsConstructor;
 import org.springframework.batch.core.partition.support.Partitioner;
 import org.springframework.batch.item.ExecutionContext;
 
+/**
+ * 제품 유형별 row 수를 기준으로 gridSize 개 정도의 비슷한 크기의 partition 을 만든다.
+ *
+ * <pre>
+ *      - 목표 크기 = 전체 row 수 / gridSize
+ *      - 목표 크기보다 큰 유형은 id 범위로 나눈다.
+ *          - 범위의 경계는 id 순으로 정렬했을 때 목표 크기 번째마다의 id 로 정하기 때문에 row 수가 비슷하다.
+ *      - 목표 크기보다 작은 유형은 큰 것부터 하나의 partition 에 채워 넣는다. (first-fit decreasing)
+ *
+ *      - ExecutionContext
+ *          - product : partition 의 첫번째 유형 (기존 호환)
+ *          - types : partition 이 처리할 유형 목록 (',' 구분)
+ *          - minId / maxId : id 범위로 나눈 경우에만 존재
+ *              - 첫번째 범위는 minId, 마지막 범위는 maxId 가 없다. (캐시된 이후에 추가된 row 도 읽도록)
+ *
+ *      - 유형별 통계와 범위 경계는 TableStatisticsCatalog 에 캐시된 값을 사용한다.
+ *      - splitTypes=false 이면 유형을 나누지 않는다. (incremental 모드의 watermark 는 유형 단위)
+ * </pre>
+ */
 @RequiredArgsConstructor
 public class ProductPartitioner implements Partitioner {
 
-    private final DataSource dataSource;
+    private final TableStatisticsCatalog catalog;
+
+    private boolean splitTypes = true;
+
+    /**
+     * false 이면 목표 크기보다 큰 유형도 id 범위로 나누지 않고 partition 하나에 담는다.
+     */
+    public void setSplitTypes(boolean splitTypes) {
+        this.splitTypes = splitTypes;
+    }
 
     @Override
     public Map<String, ExecutionContext> partition(int gridSize) {
 
-        ProductVO[] productList = QueryGenerator.getProductList(dataSource);
+        List<ProductTypeStatisticsVO> statistics = new ArrayList<>(
+            QueryGenerator.getProductStatistics(catalog));
 
-        Map<String, ExecutionContext> result = new HashMap<>();
+        long total = statistics.stream().mapToLong(ProductTypeStatisticsVO::getCount).sum();
+        long targetSize = Math.max(1, (total + gridSize - 1) / Math.max(1, gridSize));
 
-        int number = 0;
+        statistics.sort(Comparator.comparingLong(ProductTypeStatisticsVO::getCount).reversed());
 
-        for (ProductVO productVO : productList) {
-            ExecutionContext value = new ExecutionContext();
+        Map<String, ExecutionContext> result = new HashMap<>();
+        List<Bin> bins = new ArrayList<>();
 
-            value.put("product", productVO);
+        for (ProductTypeStatisticsVO statistic : statistics) {
+            if (splitTypes && statistic.getCount() > targetSize) {
+                splitByIdRange(statistic, targetSize, result);
+            } else {
+                pack(statistic, targetSize, bins);
+            }
+        }
 
-            result.put("partition-" + number, value);
+        for (Bin bin : bins) {
+            ExecutionContext value = newContext(bin.types);
 
-            number++;
+            result.put("partition-" + result.size(), value);
         }
 
         return result;
     }
+
+    private void splitByIdRange(ProductTypeStatisticsVO statistic, long targetSize,
+        Map<String, ExecutionContext> result) {
+
+        long rangeCount = (statistic.getCount() + targetSize - 1) / targetSize;
+        long rangeSize = (statistic.getCount() + rangeCount - 1) / rangeCount;
+
+        Long minId = null;
+
+        for (long i = 1; i <= rangeCount; i++) {
+
+            // 다음 범위의 시작 id, 마지막 범위는 끝을 정하지 않는다.
+            Long nextMinId = i < rangeCount
+                ? QueryGenerator.getProductIdAt(catalog, statistic.getType(), i * rangeSize)
+                : null;
+
+            ExecutionContext value = newContext(List.of(statistic.getType()));
+
+            if (minId != null) {
+                value.putLong("minId", minId);
+            }
+
+            if (nextMinId != null) {
+                value.putLong("maxId", nextMinId - 1);
+            }
+
+            result.put("partition-" + result.size(), value);
+
+            if (nextMinId == null) {
+                break;
+            }
+
+            minId = nextMinId;
+        }
+    }
+
+    private void pack(ProductTypeStatisticsVO statistic, long targetSize, List<Bin> bins) {
+
+        for (Bin bin : bins) {
+            if (bin.size + statistic.getCount() <= targetSize) {
+                bin.add(statistic);
+                return;
+            }
+        }
+
+        Bin bin = new Bin();
+        bin.add(statistic);
+        bins.add(bin);
+    }
+
+    private ExecutionContext newContext(List<String> types) {
+        ExecutionContext value = new ExecutionContext();
+
+        value.put("product", ProductVO.builder().type(types.get(0)).build());
+        value.putString("types", String.join(",", types));
+
+        return value;
+    }
+
+    private static class Bin {
+
+        private final List<String> types = new ArrayList<>();
+
+        private long size;
+
+        private void add(ProductTypeStatisticsVO statistic) {
+            types.add(statistic.getType());
+            size += statistic.getCount();
+        }
+    }
 }
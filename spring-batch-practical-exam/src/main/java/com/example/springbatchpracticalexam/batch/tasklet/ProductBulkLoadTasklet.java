@@ -0,0 +1,120 @@
+package com.example.springbatchpracticalexam.batch.tasklet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.batch.support.DatabaseType;
+import org.springframework.core.io.Resource;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * DB 가 제공하는 CSV 적재 기능으로 제품 파일을 한번에 product 테이블에 적재한다.
+ *
+ * <pre>
+ *      - H2 : insert into ... select ... from CSVREAD(file)
+ *      - MySQL : LOAD DATA LOCAL INFILE (connection url 에 allowLoadLocalInfile=true 필요)
+ *
+ *      - 파일의 첫 줄은 header (id,name,price,type) 이다.
+ *      - updated_at 은 파일의 모든 제품에 같은 적재 시각을 넣는다.
+ *      - Step transaction 안에서 실행되므로 실패하면 전체가 rollback 된다.
+ *      - classpath 의 파일이 jar 안에 있으면 임시 파일로 복사해서 적재한다.
+ * </pre>
+ */
+@Slf4j
+public class ProductBulkLoadTasklet implements Tasklet {
+
+    private static final DateTimeFormatter LOADED_AT_FORMAT = DateTimeFormatter.ofPattern(
+        "yyyy-MM-dd HH:mm:ss.SSS");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final DatabaseType databaseType;
+
+    private final Resource resource;
+
+    public ProductBulkLoadTasklet(DataSource dataSource, DatabaseType databaseType,
+        Resource resource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.databaseType = databaseType;
+        this.resource = resource;
+    }
+
+    public static boolean supports(DatabaseType databaseType) {
+        return databaseType == DatabaseType.H2 || databaseType == DatabaseType.MYSQL;
+    }
+
+    @Override
+    public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext)
+        throws Exception {
+
+        Path tempFile = null;
+        File file;
+
+        if (resource.isFile()) {
+            file = resource.getFile();
+        } else {
+            tempFile = copyToTempFile();
+            file = tempFile.toFile();
+        }
+
+        try {
+            int count = load(file.getAbsolutePath());
+
+            contribution.incrementWriteCount(count);
+
+            log.info(" >> {} products are loaded from {}.", count, resource.getFilename());
+        } finally {
+            if (tempFile != null) {
+                Files.deleteIfExists(tempFile);
+            }
+        }
+
+        return RepeatStatus.FINISHED;
+    }
+
+    private int load(String path) {
+        LocalDateTime loadedAt = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+
+        if (databaseType == DatabaseType.H2) {
+            return jdbcTemplate.update(
+                "insert into product (id, name, price, type, updated_at) "
+                    + "select id, name, price, type, ? from CSVREAD(?, null, 'charset=UTF-8')",
+                Timestamp.valueOf(loadedAt), path);
+        }
+
+        if (databaseType == DatabaseType.MYSQL) {
+            // 파일 경로는 parameter 로 전달할 수 없다.
+            return jdbcTemplate.update(
+                "LOAD DATA LOCAL INFILE '" + path.replace("\\", "\\\\").replace("'", "\\'") + "' "
+                    + "INTO TABLE product CHARACTER SET utf8mb4 "
+                    + "FIELDS TERMINATED BY ',' LINES TERMINATED BY '\\n' IGNORE 1 LINES "
+                    + "(id, name, price, @type) SET type = TRIM(TRAILING '\\r' FROM @type), "
+                    + "updated_at = '" + LOADED_AT_FORMAT.format(loadedAt) + "'");
+        }
+
+        throw new IllegalStateException("bulk load is not supported for " + databaseType);
+    }
+
+    private Path copyToTempFile() throws IOException {
+        Path tempFile = Files.createTempFile("product-", ".csv");
+
+        try (InputStream inputStream = resource.getInputStream()) {
+            Files.copy(inputStream, tempFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        return tempFile;
+    }
+}
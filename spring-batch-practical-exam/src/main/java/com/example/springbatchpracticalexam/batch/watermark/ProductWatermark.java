@@ -0,0 +1,49 @@
+package com.example.springbatchpracticalexam.batch.watermark;
+
+import com.example.springbatchpracticalexam.batch.domain.ProductVO;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * 전송을 마친 마지막 제품의 위치 (updated_at, id)
+ * <p>
+ * 같은 시각에 적재된 제품은 id 로 순서를 정한다.
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+@RequiredArgsConstructor
+public class ProductWatermark implements Comparable<ProductWatermark> {
+
+    private static final Comparator<ProductWatermark> ORDER = Comparator
+        .comparing(ProductWatermark::getUpdatedAt)
+        .thenComparing(ProductWatermark::getId);
+
+    private final LocalDateTime updatedAt;
+
+    private final Long id;
+
+    /**
+     * @return updated_at 이 없는 제품이면 null
+     */
+    public static ProductWatermark of(ProductVO product) {
+        if (product == null || product.getUpdatedAt() == null || product.getId() == null) {
+            return null;
+        }
+
+        return new ProductWatermark(product.getUpdatedAt(), product.getId());
+    }
+
+    public static ProductWatermark max(ProductWatermark a, ProductWatermark b) {
+        return a.compareTo(b) >= 0 ? a : b;
+    }
+
+    @Override
+    public int compareTo(ProductWatermark other) {
+        return ORDER.compare(this, other);
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.springbatchpracticalexam.batch.watermark;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import javax.sql.DataSource;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * product_sync_watermark 조회 / 갱신
+ * <p>
+ * DataSource 를 그대로 사용하므로 chunk transaction 안에서 호출하면 chunk 와 함께 commit / rollback 된다.
+ */
+@Component
+public class ProductWatermarkStore {
+
+    private static final String ADVANCE_SQL =
+        "update product_sync_watermark set last_updated_at = ?, last_id = ?, updated_at = ? "
+            + "where type = ? and (last_updated_at < ? or (last_updated_at = ? and last_id < ?))";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ProductWatermarkStore(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * @return 전송을 마친 마지막 제품의 위치 (없으면 null)
+     */
+    public ProductWatermark find(String type) {
+        List<ProductWatermark> watermarks = jdbcTemplate.query(
+            "select last_updated_at, last_id from product_sync_watermark where type = ?",
+            (rs, rowNum) -> new ProductWatermark(rs.getTimestamp(1).toLocalDateTime(),
+                rs.getLong(2)),
+            type);
+
+        return watermarks.isEmpty() ? null : watermarks.get(0);
+    }
+
+    /**
+     * 마지막 위치를 앞으로만 옮긴다.
+     */
+    public void advance(String type, ProductWatermark watermark) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        Timestamp updatedAt = Timestamp.valueOf(watermark.getUpdatedAt());
+
+        int updated = jdbcTemplate.update(ADVANCE_SQL, updatedAt, watermark.getId(), now,
+            type, updatedAt, updatedAt, watermark.getId());
+
+        if (updated > 0 || find(type) != null) {
+            return;
+        }
+
+        try {
+            jdbcTemplate.update(
+                "insert into product_sync_watermark (type, last_updated_at, last_id, updated_at) "
+                    + "values (?, ?, ?, ?)", type, updatedAt, watermark.getId(), now);
+        } catch (DuplicateKeyException e) {
+            // 동시에 insert 된 경우 다시 update
+            jdbcTemplate.update(ADVANCE_SQL, updatedAt, watermark.getId(), now,
+                type, updatedAt, updatedAt, watermark.getId());
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.springbatchpracticalexam.batch.watermark;
+
+import com.example.springbatchpracticalexam.batch.chunk.writer.ApiResponseListener;
+import com.example.springbatchpracticalexam.batch.domain.ApiRequestVO;
+import com.example.springbatchpracticalexam.batch.domain.ApiResponseVO;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import org.springframework.batch.core.ItemWriteListener;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStream;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 응답을 받은 제품의 유형별 마지막 위치 (updated_at, id) 를 모았다가 chunk 가 commit 될 때 high-water mark 로 저장한다.
+ *
+ * <pre>
+ *      - onResponse : ApiItemWriter 가 응답을 파일에 기록할 때 호출된다.
+ *          - 요청을 보낸 chunk 가 아니라 응답을 기록한 chunk 에서 반영되므로, 아직 응답을 받지 못했거나 보내지 않은 제품은 넘어가지 않는다.
+ *          - 5xx / 연결 실패는 예외로 chunk 가 rollback 되므로 호출되지 않는다.
+ *          - 4xx 는 다시 보내도 결과가 같고 응답이 파일에 남으므로 넘어간다. (멈추면 이후의 제품을 계속 다시 보내게 된다)
+ *          - ApiItemWriter.open() 에서 재시작 전의 요청을 다시 보낸 경우처럼 transaction 밖이면 바로 저장한다.
+ *      - update : chunk transaction 안에서 호출되므로 watermark 가 chunk 와 함께 commit 된다.
+ *          - write 가 실패하면 모은 값을 버리고, 다시 처리한 chunk 에서 응답을 기록할 때 다시 모은다.
+ *
+ *      ! 유형 하나를 하나의 partition 이 (updated_at, id) 오름차순으로 처리하는 경우에만 사용한다. (api.sync.mode=incremental)
+ *          - 응답은 보낸 순서대로 기록되므로 마지막으로 기록한 제품 앞의 제품은 모두 응답을 받은 상태이다.
+ * </pre>
+ */
+@RequiredArgsConstructor
+public class ProductWatermarkTracker implements ApiResponseListener,
+    ItemWriteListener<ApiRequestVO>, ItemStream {
+
+    private final ProductWatermarkStore watermarkStore;
+
+    private final Map<String, ProductWatermark> pending = new HashMap<>();
+
+    @Override
+    public void onResponse(List<? extends ApiRequestVO> items, ApiResponseVO responseVO) {
+
+        if (responseVO.getStatus() == null || responseVO.getStatus() >= 500) {
+            return;
+        }
+
+        for (ApiRequestVO item : items) {
+            ProductWatermark watermark = ProductWatermark.of(item.getProduct());
+
+            if (watermark != null) {
+                pending.merge(item.getProduct().getType(), watermark, ProductWatermark::max);
+            }
+        }
+
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            flush();
+        }
+    }
+
+    @Override
+    public void beforeWrite(List<? extends ApiRequestVO> items) {
+    }
+
+    @Override
+    public void afterWrite(List<? extends ApiRequestVO> items) {
+    }
+
+    @Override
+    public void onWriteError(Exception exception, List<? extends ApiRequestVO> items) {
+        pending.clear();
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        flush();
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        pending.clear();
+    }
+
+    private void flush() {
+        pending.forEach(watermarkStore::advance);
+        pending.clear();
+    }
+}
@@ -0,0 +1,232 @@
+package com.example.springbatchpracticalexam.config;
+
+import com.example.springbatchpracticalexam.batch.executor.BatchTaskExecutorFactory;
+import com.example.springbatchpracticalexam.service.ApiCircuitBreaker;
+import com.example.springbatchpracticalexam.service.ApiConcurrencyLimiter;
+import com.example.springbatchpracticalexam.service.ApiEndpointGuard;
+import com.example.springbatchpracticalexam.service.ApiRequestBatcher;
+import com.example.springbatchpracticalexam.service.ApiRequestBodyWriter;
+import com.example.springbatchpracticalexam.service.ApiServerErrorException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Scope;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.client.ResponseErrorHandler;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * ApiService1/2/3 가 공유하는 HTTP Transport
+ *
+ * <pre>
+ *      - chunk 마다 RestTemplate 과 Connection Manager 를 새로 생성하지 않고 하나의 Connection Pool 을 공유한다.
+ *      - Connection Pool 은 Route(host:port) 단위로 관리되므로 endpoint 마다 max-per-route 만큼 connection 을 유지한다.
+ *      - 서버가 Keep-Alive 시간을 주지 않으면 keep-alive 설정값 만큼 connection 을 재사용한다.
+ *      - idle 상태로 오래 남아있는 connection 은 background thread 가 정리한다.
+ * </pre>
+ */
+@Configuration
+public class ApiClientConfiguration {
+
+    @Value("${api.client.max-total:30}")
+    private int maxTotal;
+
+    @Value("${api.client.max-per-route:10}")
+    private int maxPerRoute;
+
+    @Value("${api.client.keep-alive-seconds:30}")
+    private long keepAliveSeconds;
+
+    @Value("${api.client.idle-evict-seconds:60}")
+    private long idleEvictSeconds;
+
+    @Value("${api.client.connect-timeout-millis:3000}")
+    private int connectTimeoutMillis;
+
+    @Value("${api.client.read-timeout-millis:10000}")
+    private int readTimeoutMillis;
+
+    @Value("${api.client.gzip:false}")
+    private boolean gzip;
+
+    @Value("${api.client.buffer-request-body:false}")
+    private boolean bufferRequestBody;
+
+    @Value("${api.writer.request-threads:6}")
+    private int requestThreads;
+
+    @Value("${api.batch.min-items:10}")
+    private int batchMinItems;
+
+    @Value("${api.batch.max-items:500}")
+    private int batchMaxItems;
+
+    @Value("${api.batch.initial-items:50}")
+    private int batchInitialItems;
+
+    @Value("${api.batch.max-bytes:262144}")
+    private int batchMaxBytes;
+
+    @Value("${api.batch.target-latency-millis:200}")
+    private long batchTargetLatencyMillis;
+
+    @Value("${api.limit.min:1}")
+    private int limitMin;
+
+    @Value("${api.limit.max:10}")
+    private int limitMax;
+
+    @Value("${api.limit.initial:4}")
+    private int limitInitial;
+
+    @Value("${api.limit.target-latency-millis:500}")
+    private long limitTargetLatencyMillis;
+
+    @Value("${api.limit.backoff-ratio:0.7}")
+    private double limitBackoffRatio;
+
+    @Value("${api.limit.acquire-timeout-millis:5000}")
+    private long limitAcquireTimeoutMillis;
+
+    @Value("${api.circuit.window-size:20}")
+    private int circuitWindowSize;
+
+    @Value("${api.circuit.minimum-calls:5}")
+    private int circuitMinimumCalls;
+
+    @Value("${api.circuit.failure-rate:0.5}")
+    private double circuitFailureRate;
+
+    @Value("${api.circuit.open-millis:10000}")
+    private long circuitOpenMillis;
+
+    @Value("${api.circuit.half-open-probes:2}")
+    private int circuitHalfOpenProbes;
+
+    @Bean
+    public PoolingHttpClientConnectionManager apiConnectionManager() {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+
+        connectionManager.setMaxTotal(maxTotal);
+        connectionManager.setDefaultMaxPerRoute(maxPerRoute);
+        // 오래 쉬었던 connection 은 사용하기 전에 유효성 검사
+        connectionManager.setValidateAfterInactivity(2_000);
+
+        return connectionManager;
+    }
+
+    @Bean
+    public CloseableHttpClient apiHttpClient() {
+        return HttpClients.custom()
+            .setConnectionManager(apiConnectionManager())
+            .setKeepAliveStrategy(keepAliveStrategy())
+            .evictExpiredConnections()
+            .evictIdleConnections(idleEvictSeconds, TimeUnit.SECONDS)
+            .build();
+    }
+
+    @Bean
+    public RestTemplate apiRestTemplate() {
+        HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(
+            apiHttpClient());
+
+        requestFactory.setConnectTimeout(connectTimeoutMillis);
+        requestFactory.setReadTimeout(readTimeoutMillis);
+        // false 이면 요청 body 를 메모리에 모으지 않고 connection 으로 바로 보낸다.
+        requestFactory.setBufferRequestBody(bufferRequestBody);
+
+        return new RestTemplateBuilder()
+            .requestFactory(() -> requestFactory)
+            /*
+             * 4xx 는 다시 보내도 결과가 같기 때문에 응답 그대로 파일에 기록하고,
+             * 5xx 는 ApiServerErrorException 을 던져서 chunk 를 rollback 후 다시 처리한다.
+             */
+            .errorHandler(new ResponseErrorHandler() {
+                @Override
+                public boolean hasError(ClientHttpResponse response) throws IOException {
+                    return response.getRawStatusCode() >= 500;
+                }
+
+                @Override
+                public void handleError(ClientHttpResponse response) throws IOException {
+                    throw new ApiServerErrorException(response.getRawStatusCode(),
+                        StreamUtils.copyToString(response.getBody(), StandardCharsets.UTF_8));
+                }
+            })
+            .build();
+    }
+
+    @Bean
+    public ApiRequestBodyWriter apiRequestBodyWriter(ObjectMapper objectMapper) {
+        return new ApiRequestBodyWriter(objectMapper, gzip);
+    }
+
+    /**
+     * 비동기 모드의 ApiItemWriter 가 요청을 실행하는 Thread Pool
+     * <p>
+     * 동시 요청 수는 ApiRequestDispatcher 의 endpoint 별 Semaphore 와 ApiEndpointGuard 가 제한한다.
+     */
+    @Bean
+    public AsyncTaskExecutor apiRequestExecutor(BatchTaskExecutorFactory taskExecutorFactory) {
+        return taskExecutorFactory.forRequests("api-request-", () -> {
+            ThreadPoolTaskExecutor taskExecutor = new ThreadPoolTaskExecutor();
+            taskExecutor.setCorePoolSize(requestThreads);
+            taskExecutor.setMaxPoolSize(requestThreads);
+            taskExecutor.setThreadNamePrefix("api-request-");
+
+            return taskExecutor;
+        });
+    }
+
+    /**
+     * endpoint 마다 요청 처리 시간이 다르기 때문에 ApiService 마다 새로 생성한다.
+     */
+    @Bean
+    @Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
+    public ApiRequestBatcher apiRequestBatcher() {
+        return new ApiRequestBatcher(batchMinItems, batchMaxItems, batchInitialItems,
+            batchMaxBytes, batchTargetLatencyMillis);
+    }
+
+    /**
+     * endpoint 마다 상태가 다르기 때문에 ApiService 마다 새로 생성한다.
+     */
+    @Bean
+    @Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
+    public ApiEndpointGuard apiEndpointGuard() {
+        return new ApiEndpointGuard(
+            new ApiConcurrencyLimiter(limitMin, limitMax, limitInitial, limitTargetLatencyMillis,
+                limitBackoffRatio),
+            new ApiCircuitBreaker(circuitWindowSize, circuitMinimumCalls, circuitFailureRate,
+                circuitOpenMillis, circuitHalfOpenProbes),
+            limitAcquireTimeoutMillis);
+    }
+
+    private ConnectionKeepAliveStrategy keepAliveStrategy() {
+        long defaultKeepAliveMillis = TimeUnit.SECONDS.toMillis(keepAliveSeconds);
+
+        return (response, context) -> {
+            // 서버가 Keep-Alive: timeout=n 을 내려주면 그 값을 따른다.
+            long duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(
+                response, context);
+
+            return duration > 0 ? duration : defaultKeepAliveMillis;
+        };
+    }
+
+}
@@ -0,0 +1,188 @@
+package com.example.springbatchpracticalexam.metrics;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.stereotype.Component;
+
+/**
+ * ApiService 별 요청 지표
+ *
+ * <pre>
+ *      - 요청 처리 시간 (microseconds) 히스토그램, 요청 / 실패 / item 수, payload byte 수
+ *      - 요청을 보낸 partition step (StepExecution) 별로 따로 기록하므로 apiJob 이 동시에 실행되어도 섞이지 않는다.
+ *          - ApiRequestDispatcher 의 요청 thread 는 bind() 로 요청을 보낸 step 을 이어받는다.
+ *          - step 밖에서 보낸 요청은 기록하지 않는다.
+ *      - partition step 이 시작할 때 open() 으로 기록할 곳을 만들고, 열려 있는 step 의 요청만 기록한다.
+ *          - publish() 뒤에 끝난 비동기 요청은 기록하지 않는다. (끝난 step 의 기록이 남아 쌓이지 않도록)
+ *      - partition step 이 끝나면 그 step 의 ExecutionContext 에 기록하고 (publish),
+ *        apiMasterStep 이 끝나면 partition 들의 값을 합쳐 Job 의 ExecutionContext 에 기록한다. (merge)
+ *
+ *      - ExecutionContext key : api.{endpoint}.{count|failures|items|bytes|p50|p99|p999|max|histogram}
+ * </pre>
+ */
+@Component
+public class ApiMetricsRegistry {
+
+    public static final String PREFIX = "api.";
+
+    private final Map<Long, Map<String, EndpointMetrics>> steps = new ConcurrentHashMap<>();
+
+    private final ThreadLocal<Long> boundStepExecutionId = new ThreadLocal<>();
+
+    public void record(String endpoint, long latencyMicros, int itemCount, boolean success) {
+        EndpointMetrics metrics = metrics(endpoint);
+
+        if (metrics == null) {
+            return;
+        }
+
+        metrics.latency.record(latencyMicros);
+        metrics.items.add(itemCount);
+
+        if (!success) {
+            metrics.failures.increment();
+        }
+    }
+
+    public void recordPayload(String endpoint, long bytes) {
+        EndpointMetrics metrics = metrics(endpoint);
+
+        if (metrics != null) {
+            metrics.bytes.add(bytes);
+        }
+    }
+
+    /**
+     * 호출한 thread 의 step 에 기록되도록 감싼다. (다른 thread 에서 실행할 요청용)
+     */
+    public <T> Supplier<T> bind(Supplier<T> supplier) {
+        Long stepExecutionId = currentStepExecutionId();
+
+        return () -> {
+            Long previous = boundStepExecutionId.get();
+            boundStepExecutionId.set(stepExecutionId);
+
+            try {
+                return supplier.get();
+            } finally {
+                if (previous == null) {
+                    boundStepExecutionId.remove();
+                } else {
+                    boundStepExecutionId.set(previous);
+                }
+            }
+        };
+    }
+
+    /**
+     * step 의 지표를 기록하기 시작한다.
+     */
+    public void open(StepExecution stepExecution) {
+        steps.putIfAbsent(stepExecution.getId(), new ConcurrentHashMap<>());
+    }
+
+    /**
+     * step 의 지표를 꺼내서 그 step 의 ExecutionContext 에 기록한다. 이후의 기록은 무시한다.
+     */
+    public void publish(StepExecution stepExecution) {
+        Map<String, EndpointMetrics> endpoints = steps.remove(stepExecution.getId());
+
+        if (endpoints != null) {
+            write(endpoints, stepExecution.getExecutionContext());
+        }
+    }
+
+    /**
+     * publish() 로 기록된 step 들의 지표를 endpoint 별로 합쳐서 기록한다.
+     */
+    public void merge(Collection<StepExecution> stepExecutions, ExecutionContext target) {
+        Map<String, EndpointMetrics> merged = new HashMap<>();
+
+        for (StepExecution stepExecution : stepExecutions) {
+            ExecutionContext source = stepExecution.getExecutionContext();
+
+            for (Map.Entry<String, Object> entry : source.entrySet()) {
+                String key = entry.getKey();
+
+                if (!key.startsWith(PREFIX) || !key.endsWith(".histogram")) {
+                    continue;
+                }
+
+                String prefix = key.substring(0, key.length() - "histogram".length());
+                String endpoint = prefix.substring(PREFIX.length(), prefix.length() - 1);
+
+                EndpointMetrics metrics = merged.computeIfAbsent(endpoint,
+                    name -> new EndpointMetrics());
+
+                metrics.latency.merge(source.getString(key), source.getLong(prefix + "max"));
+                metrics.failures.add(source.getLong(prefix + "failures"));
+                metrics.items.add(source.getLong(prefix + "items"));
+                metrics.bytes.add(source.getLong(prefix + "bytes"));
+            }
+        }
+
+        write(merged, target);
+    }
+
+    private void write(Map<String, EndpointMetrics> endpoints, ExecutionContext executionContext) {
+        new TreeMap<>(endpoints).forEach((endpoint, metrics) -> {
+            String prefix = PREFIX + endpoint + ".";
+            LatencyHistogram latency = metrics.latency;
+
+            executionContext.putLong(prefix + "count", latency.getTotalCount());
+            executionContext.putLong(prefix + "failures", metrics.failures.sum());
+            executionContext.putLong(prefix + "items", metrics.items.sum());
+            executionContext.putLong(prefix + "bytes", metrics.bytes.sum());
+            executionContext.putLong(prefix + "p50", latency.getValueAtQuantile(0.5));
+            executionContext.putLong(prefix + "p99", latency.getValueAtQuantile(0.99));
+            executionContext.putLong(prefix + "p999", latency.getValueAtQuantile(0.999));
+            executionContext.putLong(prefix + "max", latency.getMax());
+            executionContext.putString(prefix + "histogram", latency.encode());
+        });
+    }
+
+    private EndpointMetrics metrics(String endpoint) {
+        Long stepExecutionId = currentStepExecutionId();
+
+        if (stepExecutionId == null) {
+            return null;
+        }
+
+        Map<String, EndpointMetrics> endpoints = steps.get(stepExecutionId);
+
+        if (endpoints == null) {
+            return null;
+        }
+
+        return endpoints.computeIfAbsent(endpoint, key -> new EndpointMetrics());
+    }
+
+    private Long currentStepExecutionId() {
+        Long bound = boundStepExecutionId.get();
+
+        if (bound != null) {
+            return bound;
+        }
+
+        StepContext context = StepSynchronizationManager.getContext();
+
+        return context != null ? context.getStepExecution().getId() : null;
+    }
+
+    private static class EndpointMetrics {
+
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder items = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.springbatchpracticalexam.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * HdrHistogram 과 같은 방식의 log-linear 히스토그램 (lock-free)
+ *
+ * <pre>
+ *      - 2 의 거듭제곱 구간마다 2^SUB_BITS 개의 bucket 으로 나눈다.
+ *          - 값의 크기와 관계없이 상대 오차가 1 / 2^SUB_BITS (약 3%) 이내이다.
+ *      - 기록은 AtomicLongArray 의 increment 한번이므로 여러 partition thread 가 동시에 기록해도 lock 이 없다.
+ *      - 음수는 0 으로 기록한다.
+ * </pre>
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BITS = 5;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int BUCKET_COUNT = (64 - SUB_BITS) << SUB_BITS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+    private final AtomicLong totalCount = new AtomicLong();
+
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long value) {
+        long v = Math.max(0, value);
+
+        counts.incrementAndGet(indexOf(v));
+        totalCount.incrementAndGet();
+
+        updateMax(v);
+    }
+
+    /**
+     * encode() 로 기록한 다른 히스토그램의 값을 더한다. (partition 별 히스토그램 병합용)
+     *
+     * @param otherMax 다른 히스토그램의 최대값 (encode() 에는 포함되지 않는다)
+     */
+    public void merge(String encoded, long otherMax) {
+        if (encoded != null && !encoded.isEmpty()) {
+            for (String bucket : encoded.split(",")) {
+                int separator = bucket.indexOf(':');
+                long count = Long.parseLong(bucket.substring(separator + 1));
+
+                counts.addAndGet(Integer.parseInt(bucket.substring(0, separator)), count);
+                totalCount.addAndGet(count);
+            }
+        }
+
+        updateMax(otherMax);
+    }
+
+    public long getTotalCount() {
+        return totalCount.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @param quantile 0 ~ 1 (ex. 0.99)
+     * @return 해당 quantile 이 속한 bucket 의 대표값 (기록된 값이 없으면 0)
+     */
+    public long getValueAtQuantile(double quantile) {
+        long total = totalCount.get();
+
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+
+            if (seen >= rank) {
+                return Math.min(max.get(), representativeOf(i));
+            }
+        }
+
+        return max.get();
+    }
+
+    /**
+     * 0 이 아닌 bucket 만 "index:count,index:count" 형태로 기록한다. (ExecutionContext 저장용)
+     */
+    public String encode() {
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long count = counts.get(i);
+
+            if (count > 0) {
+                if (builder.length() > 0) {
+                    builder.append(',');
+                }
+                builder.append(i).append(':').append(count);
+            }
+        }
+
+        return builder.toString();
+    }
+
+    private void updateMax(long value) {
+        long current;
+        while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+            // 다른 thread 가 먼저 바꾼 경우 다시 비교한다.
+        }
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_COUNT) {
+            return (int) value;
+        }
+
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+
+        return ((shift + 1) << SUB_BITS) + (int) ((value >>> shift) - SUB_COUNT);
+    }
+
+    static long lowerBoundOf(int index) {
+        if (index < SUB_COUNT) {
+            return index;
+        }
+
+        int shift = (index >> SUB_BITS) - 1;
+        long sub = index & (SUB_COUNT - 1);
+
+        return (sub + SUB_COUNT) << shift;
+    }
+
+    private static long representativeOf(int index) {
+        if (index < SUB_COUNT) {
+            return index;
+        }
+
+        int shift = (index >> SUB_BITS) - 1;
+
+        // bucket 의 중간값
+        return lowerBoundOf(index) + ((1L << shift) >> 1);
+    }
+}
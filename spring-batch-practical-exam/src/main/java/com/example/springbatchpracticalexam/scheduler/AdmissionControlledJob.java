@@ -0,0 +1,39 @@
+package com.example.springbatchpracticalexam.scheduler;
+
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.quartz.QuartzJobBean;
+
+/**
+ * JobAdmissionController 를 거쳐 Batch Job 을 실행하는 Schedule Job
+ * <p>
+ * 하위 클래스는 launch() 에 Batch Job 실행만 정의하고, 동시 실행 제한은 이 클래스가 처리한다.
+ */
+public abstract class AdmissionControlledJob extends QuartzJobBean {
+
+    private JobAdmissionController jobAdmissionController;
+
+    @Autowired
+    public void setJobAdmissionController(JobAdmissionController jobAdmissionController) {
+        this.jobAdmissionController = jobAdmissionController;
+    }
+
+    @Override
+    protected void executeInternal(JobExecutionContext context) throws JobExecutionException {
+        try {
+            jobAdmissionController.submit(getBatchJobName(), () -> launch(context));
+        } catch (JobExecutionException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new JobExecutionException(e);
+        }
+    }
+
+    /**
+     * 동시 실행을 제한하는 단위 (Batch Job 이름)
+     */
+    protected abstract String getBatchJobName();
+
+    protected abstract void launch(JobExecutionContext context) throws Exception;
+}
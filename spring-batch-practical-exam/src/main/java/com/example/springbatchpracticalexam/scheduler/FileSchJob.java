@@ -1,35 +1,32 @@
 package com.example.springbatchpracticalexam.scheduler;
 
 import java.util.Date;
-import java.util.List;
-import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
-import lombok.SneakyThrows;
 import org.quartz.JobExecutionContext;
 import org.quartz.JobExecutionException;
 import org.springframework.batch.core.Job;
-import org.springframework.batch.core.JobExecution;
-import org.springframework.batch.core.JobInstance;
 import org.springframework.batch.core.JobParameters;
 import org.springframework.batch.core.JobParametersBuilder;
-import org.springframework.batch.core.explore.JobExplorer;
 import org.springframework.batch.core.launch.JobLauncher;
-import org.springframework.scheduling.quartz.QuartzJobBean;
 import org.springframework.stereotype.Component;
 
 @Component
 @RequiredArgsConstructor
-public class FileSchJob extends QuartzJobBean {
+public class FileSchJob extends AdmissionControlledJob {
 
     private final Job fileJob;
 
     private final JobLauncher jobLauncher;
 
-    private final JobExplorer jobExplorer;
+    private final JobRunClaimStore jobRunClaimStore;
 
-    @SneakyThrows
     @Override
-    protected void executeInternal(JobExecutionContext context) throws JobExecutionException {
+    protected String getBatchJobName() {
+        return fileJob.getName();
+    }
+
+    @Override
+    protected void launch(JobExecutionContext context) throws Exception {
         // 실제 Schedule 의 대한 작업을 정의한다.
 
         String requestDate = (String) context.getJobDetail().getJobDataMap().get("requestDate");
@@ -37,29 +34,9 @@ public class FileSchJob extends QuartzJobBean {
         // 이전 데이터 추가 확인
         // 추가된 데이터인 경우 실행 X
 
-        // 해당 Job Name 으로 가지고 있는 JobInstance 총 개수
-        int jobInstanceCount = jobExplorer.getJobInstanceCount(fileJob.getName());
-
-        // 해당 JobName 으로 가지고 있는 Instance start, end 까지 가져오기
-        List<JobInstance> jobInstances = jobExplorer.getJobInstances(fileJob.getName(), 0,
-            jobInstanceCount);
-
         // 해당과 동일한 날짜의 작업은 실행시키지 않고 예외를 발생시킨다.
-        if (!jobInstances.isEmpty()) {
-            for (JobInstance jobInstance : jobInstances) {
-                List<JobExecution> jobExecutions = jobExplorer.getJobExecutions(jobInstance);
-
-                List<JobExecution> jobExecutionList = jobExecutions.stream()
-                    .filter(jobExecution ->
-                        requestDate.equals(
-                            jobExecution.getJobParameters().getString("requestDate")))
-                    .collect(Collectors.toList());
-
-                if (!jobExecutionList.isEmpty()) {
-                    throw new JobExecutionException(requestDate + " already exist.");
-                }
-
-            }
+        if (!jobRunClaimStore.claim(fileJob.getName(), "requestDate", requestDate)) {
+            throw new JobExecutionException(requestDate + " already exist.");
         }
 
         JobParameters jobParameters = new JobParametersBuilder()
@@ -67,7 +44,13 @@ public class FileSchJob extends QuartzJobBean {
             .addString("requestDate", requestDate)
             .toJobParameters();
 
-        jobLauncher.run(fileJob, jobParameters);
+        try {
+            jobLauncher.run(fileJob, jobParameters);
+        } catch (Exception e) {
+            // JobExecution 이 만들어지지 못했으므로 다음 trigger 에서 다시 실행한다.
+            jobRunClaimStore.release(fileJob.getName(), requestDate);
+            throw e;
+        }
 
     }
 }
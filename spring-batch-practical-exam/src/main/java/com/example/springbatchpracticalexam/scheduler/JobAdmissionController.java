@@ -0,0 +1,179 @@
+package com.example.springbatchpracticalexam.scheduler;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.CustomizableThreadFactory;
+
+/**
+ * Schedule 로 실행되는 Batch Job 의 동시 실행을 제한한다.
+ *
+ * <pre>
+ *      - Job 별 동시 실행 수 : 이미 max-concurrent-per-job 만큼 실행 중이면 trigger 를 대기열에 남기고 바로 반환한다.
+ *      - 대기열은 Job 별로 하나뿐이라 실행 중에 여러번 trigger 되어도 마지막 trigger 한번만 이어서 실행된다.
+ *          - 실행 중이던 thread 가 Job 이 끝난 후 대기열의 trigger 를 실행한다.
+ *      - 전체 동시 실행 수 : 모든 Job 을 합쳐 max-concurrent-jobs 만큼만 실행한다.
+ *          - global-wait-seconds 동안 기다려도 실행하지 못하면 trigger 를 대기열에 되돌려 놓고,
+ *            global-wait-seconds 후에 다시 실행을 시도하도록 예약한다. (다음 trigger 가 없어도 실행된다)
+ * </pre>
+ */
+@Slf4j
+@Component
+public class JobAdmissionController {
+
+    private final Semaphore globalPermits;
+
+    private final int maxConcurrentJobs;
+
+    private final int maxConcurrentPerJob;
+
+    private final long globalWaitSeconds;
+
+    private final Map<String, JobSlot> slots = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService deferredRuns;
+
+    public JobAdmissionController(
+        @Value("${batch.scheduler.max-concurrent-jobs:2}") int maxConcurrentJobs,
+        @Value("${batch.scheduler.max-concurrent-per-job:1}") int maxConcurrentPerJob,
+        @Value("${batch.scheduler.global-wait-seconds:30}") long globalWaitSeconds) {
+        this.globalPermits = new Semaphore(maxConcurrentJobs, true);
+        this.maxConcurrentJobs = maxConcurrentJobs;
+        this.maxConcurrentPerJob = maxConcurrentPerJob;
+        this.globalWaitSeconds = globalWaitSeconds;
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("deferred-job-");
+        threadFactory.setDaemon(true);
+        this.deferredRuns = Executors.newScheduledThreadPool(maxConcurrentJobs, threadFactory);
+    }
+
+    /**
+     * trigger 된 Job 을 실행하거나, 실행 중이면 대기열에 남긴다.
+     * <p>
+     * 이 thread 가 실행한 launch 중 실패한 것이 있으면 모두 실행한 후 첫번째 예외를 던진다.
+     */
+    public void submit(String jobName, JobLaunch launch) throws Exception {
+
+        JobSlot slot = slots.computeIfAbsent(jobName, name -> new JobSlot(maxConcurrentPerJob));
+
+        // 이전에 대기 중이던 trigger 는 이번 trigger 로 합쳐진다.
+        if (slot.pending.getAndSet(launch) != null) {
+            log.info("{} trigger is coalesced into the pending run.", jobName);
+        }
+
+        Exception failure = drain(jobName, slot);
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * 대기열의 trigger 를 실행할 수 있는 만큼 실행한다.
+     *
+     * @return 실행한 launch 중 첫번째 예외 (나머지는 suppressed)
+     */
+    private Exception drain(String jobName, JobSlot slot) throws InterruptedException {
+
+        Exception failure = null;
+
+        // permit 을 반환한 후 다시 대기열을 확인하므로 반환 직전에 들어온 trigger 도 놓치지 않는다.
+        while (slot.pending.get() != null && slot.permits.tryAcquire()) {
+            try {
+                JobLaunch next = slot.pending.getAndSet(null);
+
+                if (next == null) {
+                    continue;
+                }
+
+                if (!globalPermits.tryAcquire(globalWaitSeconds, TimeUnit.SECONDS)) {
+                    slot.pending.compareAndSet(null, next);
+                    defer(jobName, slot);
+                    break;
+                }
+
+                try {
+                    next.launch();
+                } catch (Exception e) {
+                    if (failure == null) {
+                        failure = e;
+                    } else {
+                        failure.addSuppressed(e);
+                    }
+                } finally {
+                    globalPermits.release();
+                }
+            } finally {
+                slot.permits.release();
+            }
+        }
+
+        if (slot.pending.get() != null) {
+            log.info("{} is already running. the trigger is queued for a catch-up run.", jobName);
+        }
+
+        return failure;
+    }
+
+    /**
+     * 전체 동시 실행 수가 가득 차서 되돌려 놓은 trigger 를 global-wait-seconds 후에 다시 실행한다.
+     * <p>
+     * Job 별로 예약은 하나만 유지한다.
+     */
+    private void defer(String jobName, JobSlot slot) {
+
+        log.warn("{} is deferred for {} seconds. {} batch jobs are already running.", jobName,
+            globalWaitSeconds, maxConcurrentJobs);
+
+        if (!slot.deferred.compareAndSet(false, true)) {
+            return;
+        }
+
+        deferredRuns.schedule(() -> {
+            slot.deferred.set(false);
+
+            try {
+                Exception failure = drain(jobName, slot);
+
+                if (failure != null) {
+                    log.error("deferred run of {} failed.", jobName, failure);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, globalWaitSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        deferredRuns.shutdownNow();
+    }
+
+    @FunctionalInterface
+    public interface JobLaunch {
+
+        void launch() throws Exception;
+    }
+
+    private static class JobSlot {
+
+        private final Semaphore permits;
+
+        private final AtomicReference<JobLaunch> pending = new AtomicReference<>();
+
+        private final AtomicBoolean deferred = new AtomicBoolean();
+
+        private JobSlot(int maxConcurrent) {
+            this.permits = new Semaphore(maxConcurrent);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.springbatchpracticalexam.scheduler;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * 같은 업무 key 로 Job 이 중복 실행되지 않도록 실행을 선점한다.
+ *
+ * <pre>
+ *      - JobExplorer 로 모든 JobInstance / JobExecution 을 조회하지 않고 job_run_claim 에 insert 한번으로 확인한다.
+ *      - (job_name, business_key) unique 제약조건 때문에 동시에 선점해도 하나만 성공한다.
+ *      - 이력이 늘어나도 trigger 마다 index 조회 한번의 비용만 든다.
+ *      - 선점에 성공하면 해당 key 로 실행된 JobExecution 이 이미 있는지 Job Repository 를 한번 확인한다.
+ *          - job_run_claim 을 만들기 전에 실행된 이력도 중복으로 판단하기 위해서이다.
+ *          - 이미 실행된 key 이면 선점을 유지하므로 다음 trigger 부터는 insert 만으로 확인된다.
+ *
+ *      - 테이블 : schema-mysql.sql (local 은 JobRunClaim Entity 로 생성)
+ * </pre>
+ */
+@Slf4j
+@Component
+public class JobRunClaimStore {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public JobRunClaimStore(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * @param parameterName businessKey 가 전달되는 JobParameter 이름
+     * @return 선점에 성공하면 true, 이미 선점되었거나 실행된 key 이면 false
+     */
+    public boolean claim(String jobName, String parameterName, String businessKey) {
+        try {
+            jdbcTemplate.update(
+                "insert into job_run_claim (job_name, business_key, claimed_at) values (?, ?, ?)",
+                jobName, businessKey, Timestamp.valueOf(LocalDateTime.now()));
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+
+        if (hasExecution(jobName, parameterName, businessKey)) {
+            log.info("{} [{}] was already executed before the run claim.", jobName, businessKey);
+            return false;
+        }
+
+        return true;
+    }
+
+    private boolean hasExecution(String jobName, String parameterName, String businessKey) {
+        Integer count = jdbcTemplate.queryForObject(
+            "select count(*) from BATCH_JOB_EXECUTION_PARAMS p"
+                + " join BATCH_JOB_EXECUTION e on e.JOB_EXECUTION_ID = p.JOB_EXECUTION_ID"
+                + " join BATCH_JOB_INSTANCE i on i.JOB_INSTANCE_ID = e.JOB_INSTANCE_ID"
+                + " where i.JOB_NAME = ? and p.KEY_NAME = ? and p.STRING_VAL = ?",
+            Integer.class, jobName, parameterName, businessKey);
+
+        return count != null && count > 0;
+    }
+
+    /**
+     * Job 을 실행시키지 못한 경우 다음 trigger 에서 다시 실행할 수 있도록 선점을 해제한다.
+     */
+    public void release(String jobName, String businessKey) {
+        jdbcTemplate.update("delete from job_run_claim where job_name = ? and business_key = ?",
+            jobName, businessKey);
+
+        log.info("run claim of {} [{}] is released.", jobName, businessKey);
+    }
+}
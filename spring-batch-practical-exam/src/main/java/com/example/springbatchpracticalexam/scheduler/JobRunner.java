@@ -24,9 +24,15 @@ public abstract class JobRunner implements ApplicationRunner {
 
     protected abstract void doRun(ApplicationArguments args);
 
+    /**
+     * Quartz thread 가 부족해서 놓친 trigger 는 여러번 실행하지 않고 한번만 실행한다.
+     * <p>
+     * 실행 중인 Job 과 겹친 trigger 는 JobAdmissionController 가 하나로 합친다.
+     */
     public Trigger buildJobTrigger(String scheduleExp) {
         return TriggerBuilder.newTrigger()
-            .withSchedule(CronScheduleBuilder.cronSchedule(scheduleExp)).build();
+            .withSchedule(CronScheduleBuilder.cronSchedule(scheduleExp)
+                .withMisfireHandlingInstructionFireAndProceed()).build();
     }
 
     public JobDetail buildJobDetail(Class<? extends Job> job, String name, String group,
@@ -3,44 +3,128 @@ package com.example.springbatchpracticalexam.service;
 import com.example.springbatchpracticalexam.batch.domain.ApiInfo;
 import com.example.springbatchpracticalexam.batch.domain.ApiRequestVO;
 import com.example.springbatchpracticalexam.batch.domain.ApiResponseVO;
-import java.io.IOException;
+import com.example.springbatchpracticalexam.metrics.ApiMetricsRegistry;
+import com.example.springbatchpracticalexam.service.ApiRequestBodyWriter.BodyCallback;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
-import org.springframework.boot.web.client.RestTemplateBuilder;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
-import org.springframework.http.client.ClientHttpResponse;
-import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
-import org.springframework.web.client.ResponseErrorHandler;
+import java.util.concurrent.TimeUnit;
+import org.springframework.http.HttpMethod;
+import org.springframework.util.StreamUtils;
 import org.springframework.web.client.RestTemplate;
 
+/**
+ * ApiService 공통 처리
+ *
+ * <pre>
+ *      - RestTemplate 은 ApiClientConfiguration 에서 생성한 Connection Pool 기반의 Bean 을 공유한다.
+ *      - chunk 마다 RestTemplate 을 새로 생성하면 매번 TCP 연결을 새로 맺기 때문에 재사용한다.
+ *      - 요청 body 는 ApiRequestBodyWriter 가 OutputStream 에 직접 기록한다.
+ *      - ApiRequestBatcher 는 endpoint 마다 따로 생성되며 요청 처리 시간을 기록한다.
+ *      - ApiEndpointGuard 는 endpoint 가 느려지거나 실패하면 동시 요청 수를 줄이고, 계속 실패하면 요청을 차단한다.
+ *      - 5xx 응답은 RestTemplate 의 ErrorHandler 가 ApiServerErrorException 으로 던지므로 실패로 기록된다.
+ *      - 요청 처리 시간 / item 수 / payload 크기 / 실패는 ApiMetricsRegistry 에 기록한다.
+ * </pre>
+ */
 public abstract class AbstractApiService {
 
+    private final RestTemplate restTemplate;
+
+    private final ApiRequestBatcher requestBatcher;
+
+    private final ApiRequestBodyWriter requestBodyWriter;
+
+    private final ApiEndpointGuard endpointGuard;
+
+    private final ApiMetricsRegistry metricsRegistry;
+
+    protected AbstractApiService(RestTemplate restTemplate, ApiRequestBatcher requestBatcher,
+        ApiRequestBodyWriter requestBodyWriter, ApiEndpointGuard endpointGuard,
+        ApiMetricsRegistry metricsRegistry) {
+        this.restTemplate = restTemplate;
+        this.requestBatcher = requestBatcher;
+        this.requestBodyWriter = requestBodyWriter;
+        this.endpointGuard = endpointGuard;
+        this.metricsRegistry = metricsRegistry;
+    }
+
     public ApiResponseVO service(List<? extends ApiRequestVO> list) {
+        return service(list, null);
+    }
+
+    /**
+     * @param idempotencyKey 같은 요청을 다시 보낼 때 api-service 가 중복으로 처리하지 않도록 하는 key
+     */
+    public ApiResponseVO service(List<? extends ApiRequestVO> list, String idempotencyKey) {
+
+        ApiInfo apiInfo = ApiInfo.builder()
+            .apiRequestList(list)
+            .idempotencyKey(idempotencyKey)
+            .build();
 
-        RestTemplateBuilder restTemplateBuilder = new RestTemplateBuilder();
+        String endpoint = getEndpointName();
 
-        RestTemplate restTemplate = restTemplateBuilder.errorHandler(new ResponseErrorHandler() {
-            @Override
-            public boolean hasError(ClientHttpResponse response) throws IOException {
-                return false;
-            }
+        ApiCircuitBreaker.Permit permit = endpointGuard.acquire(endpoint);
 
-            @Override
-            public void handleError(ClientHttpResponse response) throws IOException {
+        long start = System.nanoTime();
+        boolean success = false;
 
-            }
-        }).build();
+        try {
+            ApiResponseVO responseVO = doApiService(restTemplate, apiInfo);
 
-        restTemplate.setRequestFactory(new HttpComponentsClientHttpRequestFactory());
+            success = responseVO.getStatus() != null && responseVO.getStatus() < 500;
 
-        HttpHeaders httpHeaders = new HttpHeaders();
+            return responseVO;
+        } finally {
+            long latencyNanos = System.nanoTime() - start;
+            long latencyMillis = TimeUnit.NANOSECONDS.toMillis(latencyNanos);
 
-        httpHeaders.setContentType(MediaType.APPLICATION_JSON);
+            endpointGuard.release(endpoint, permit, latencyMillis, success);
+            requestBatcher.record(list.size(), latencyMillis, success);
+            metricsRegistry.record(endpoint, TimeUnit.NANOSECONDS.toMicros(latencyNanos),
+                list.size(), success);
+        }
 
-        ApiInfo apiInfo = ApiInfo.builder().apiRequestList(list).build();
+    }
+
+    /**
+     * 남은 item 중 요청 하나에 담을 item 수
+     */
+    public int nextBatchSize(List<? extends ApiRequestVO> items) {
+        return requestBatcher.nextBatchSize(items);
+    }
+
+    /**
+     * 요청 하나에 담을 item 수 예산
+     */
+    public int getItemBudget() {
+        return requestBatcher.getItemBudget();
+    }
 
-        return doApiService(restTemplate, apiInfo);
+    /**
+     * ApiInfo 를 JSON 으로 직접 기록해서 POST 요청을 보낸다.
+     */
+    protected ApiResponseVO post(RestTemplate restTemplate, String url, ApiInfo apiInfo) {
+
+        BodyCallback bodyCallback = requestBodyWriter.callback(apiInfo);
+
+        ApiResponseVO responseVO = restTemplate.execute(url, HttpMethod.POST, bodyCallback,
+            response -> ApiResponseVO.builder()
+                .status(response.getRawStatusCode())
+                .message(StreamUtils.copyToString(response.getBody(), StandardCharsets.UTF_8))
+                .build());
+
+        requestBatcher.recordPayload(apiInfo.getApiRequestList().size(),
+            bodyCallback.getWrittenBytes());
+        metricsRegistry.recordPayload(getEndpointName(), bodyCallback.getWrittenBytes());
+
+        return responseVO;
+    }
 
+    /**
+     * 로그와 지표에 사용하는 endpoint 이름
+     */
+    public String getEndpointName() {
+        return getClass().getSimpleName();
     }
 
     protected abstract ApiResponseVO doApiService(RestTemplate restTemplate, ApiInfo apiInfo);
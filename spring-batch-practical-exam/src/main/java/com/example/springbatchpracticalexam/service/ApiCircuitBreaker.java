@@ -0,0 +1,180 @@
+package com.example.springbatchpracticalexam.service;
+
+import java.util.function.LongSupplier;
+
+/**
+ * endpoint 별 Circuit Breaker
+ *
+ * <pre>
+ *      - CLOSED : 최근 window-size 개의 요청 중 실패 비율이 failure-rate 이상이면 OPEN
+ *      - OPEN : open-millis 동안 요청을 보내지 않고 바로 실패시킨다.
+ *      - HALF_OPEN : open-millis 가 지나면 half-open-probes 개의 요청만 보내본다.
+ *          - 모두 성공하면 CLOSED, 하나라도 실패하면 다시 OPEN
+ *      - 상태가 바뀔 때마다 generation 이 바뀌고, tryAcquire() 가 돌려준 Permit 에 허용된 generation 을 기록한다.
+ *          - 결과와 취소는 같은 generation 에 허용된 요청의 것만 반영한다.
+ *          - OPEN 전에 보낸 요청이 HALF_OPEN 에서 끝나도 probe 로 세지 않는다.
+ * </pre>
+ */
+public class ApiCircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRate;
+    private final long openMillis;
+    private final int halfOpenProbes;
+
+    private final LongSupplier clock;
+
+    /**
+     * 최근 요청의 실패 여부 (ring buffer)
+     */
+    private final boolean[] window;
+
+    private int windowIndex;
+    private int windowCount;
+    private int windowFailures;
+
+    private State state = State.CLOSED;
+
+    private long openedAt;
+
+    private long generation;
+
+    private int probesStarted;
+    private int probesSucceeded;
+
+    public ApiCircuitBreaker(int windowSize, int minimumCalls, double failureRate,
+        long openMillis, int halfOpenProbes) {
+        this(windowSize, minimumCalls, failureRate, openMillis, halfOpenProbes,
+            System::currentTimeMillis);
+    }
+
+    /**
+     * @param clock 현재 시간 (millis), 테스트에서 시간을 직접 옮기기 위해 사용한다.
+     */
+    ApiCircuitBreaker(int windowSize, int minimumCalls, double failureRate, long openMillis,
+        int halfOpenProbes, LongSupplier clock) {
+        this.clock = clock;
+        this.windowSize = Math.max(1, windowSize);
+        this.minimumCalls = Math.max(1, Math.min(this.windowSize, minimumCalls));
+        this.failureRate = failureRate;
+        this.openMillis = openMillis;
+        this.halfOpenProbes = Math.max(1, halfOpenProbes);
+        this.window = new boolean[this.windowSize];
+    }
+
+    /**
+     * @return 요청을 보낼 수 없으면 null
+     */
+    public synchronized Permit tryAcquire() {
+        if (state == State.OPEN) {
+            if (clock.getAsLong() - openedAt < openMillis) {
+                return null;
+            }
+
+            state = State.HALF_OPEN;
+            generation++;
+            probesStarted = 0;
+            probesSucceeded = 0;
+        }
+
+        if (state == State.HALF_OPEN) {
+            if (probesStarted >= halfOpenProbes) {
+                return null;
+            }
+
+            probesStarted++;
+        }
+
+        return new Permit(generation, state == State.HALF_OPEN);
+    }
+
+    public synchronized void onResult(Permit permit, boolean success) {
+        if (permit.generation != generation) {
+            // 상태가 바뀌기 전에 보낸 요청의 결과
+            return;
+        }
+
+        if (permit.probe) {
+            if (!success) {
+                open();
+            } else if (++probesSucceeded >= halfOpenProbes) {
+                close();
+            }
+
+            return;
+        }
+
+        if (windowCount == windowSize && window[windowIndex]) {
+            windowFailures--;
+        }
+
+        window[windowIndex] = !success;
+        windowIndex = (windowIndex + 1) % windowSize;
+        windowCount = Math.min(windowSize, windowCount + 1);
+
+        if (!success) {
+            windowFailures++;
+        }
+
+        if (windowCount >= minimumCalls && windowFailures >= failureRate * windowCount) {
+            open();
+        }
+    }
+
+    /**
+     * tryAcquire() 후 요청을 보내지 못한 경우 (결과 없음)
+     */
+    public synchronized void cancel(Permit permit) {
+        if (permit.probe && permit.generation == generation && probesStarted > 0) {
+            probesStarted--;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * @return OPEN 상태이면 HALF_OPEN 으로 바뀔 때까지 남은 시간, 그 외에는 0
+     */
+    public synchronized long getRetryAfterMillis() {
+        if (state != State.OPEN) {
+            return 0;
+        }
+
+        return Math.max(0, openMillis - (clock.getAsLong() - openedAt));
+    }
+
+    private void open() {
+        state = State.OPEN;
+        generation++;
+        openedAt = clock.getAsLong();
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        generation++;
+        windowIndex = 0;
+        windowCount = 0;
+        windowFailures = 0;
+    }
+
+    /**
+     * tryAcquire() 로 허용된 요청
+     */
+    public static final class Permit {
+
+        private final long generation;
+        private final boolean probe;
+
+        private Permit(long generation, boolean probe) {
+            this.generation = generation;
+            this.probe = probe;
+        }
+    }
+}
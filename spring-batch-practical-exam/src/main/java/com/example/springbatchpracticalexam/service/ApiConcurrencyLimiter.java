@@ -0,0 +1,87 @@
+package com.example.springbatchpracticalexam.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * endpoint 별 동시 요청 수 한도를 응답 시간에 맞춰 조절한다. (AIMD)
+ *
+ * <pre>
+ *      - 목표 시간 이내에 성공하면 한도를 1 / 한도 만큼 늘린다. (한도만큼 성공하면 +1)
+ *      - 목표 시간을 넘거나 실패하면 한도를 backoff-ratio 배로 줄인다.
+ *      - 한도에 도달하면 partition thread 는 다른 요청이 끝날 때까지 대기한다.
+ * </pre>
+ */
+public class ApiConcurrencyLimiter {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long targetLatencyMillis;
+    private final double backoffRatio;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+
+    private double limit;
+
+    private int inFlight;
+
+    public ApiConcurrencyLimiter(int minLimit, int maxLimit, int initialLimit,
+        long targetLatencyMillis, double backoffRatio) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.targetLatencyMillis = targetLatencyMillis;
+        this.backoffRatio = backoffRatio;
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+    }
+
+    /**
+     * @return timeout 안에 요청을 보낼 수 있게 되면 true
+     */
+    public boolean acquire(long timeoutMillis) throws InterruptedException {
+        long remaining = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+
+        lock.lock();
+        try {
+            while (inFlight >= (int) limit) {
+                if (remaining <= 0) {
+                    return false;
+                }
+                remaining = released.awaitNanos(remaining);
+            }
+
+            inFlight++;
+
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void release(long latencyMillis, boolean success) {
+        lock.lock();
+        try {
+            inFlight--;
+
+            if (success && latencyMillis <= targetLatencyMillis) {
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            } else {
+                limit = Math.max(minLimit, limit * backoffRatio);
+            }
+
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.springbatchpracticalexam.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * endpoint 별 Circuit Breaker 와 동시 요청 한도
+ *
+ * <pre>
+ *      - Circuit Breaker 가 열려 있으면 기다리지 않고 바로 ApiEndpointUnavailableException 을 던진다.
+ *      - 동시 요청 한도에 도달하면 acquire-timeout 만큼 기다리고, 그래도 보낼 수 없으면 예외를 던진다.
+ *      - 5xx 응답(ApiServerErrorException)과 예외는 실패로 기록한다.
+ *      - acquire() 가 돌려준 Permit 을 release() 에 넘겨서 Circuit Breaker 가 어느 상태에서 보낸 요청인지 알 수 있게 한다.
+ * </pre>
+ */
+@Slf4j
+public class ApiEndpointGuard {
+
+    private final ApiConcurrencyLimiter limiter;
+
+    private final ApiCircuitBreaker circuitBreaker;
+
+    private final long acquireTimeoutMillis;
+
+    public ApiEndpointGuard(ApiConcurrencyLimiter limiter, ApiCircuitBreaker circuitBreaker,
+        long acquireTimeoutMillis) {
+        this.limiter = limiter;
+        this.circuitBreaker = circuitBreaker;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+    }
+
+    public ApiCircuitBreaker.Permit acquire(String endpoint) {
+        ApiCircuitBreaker.Permit permit = circuitBreaker.tryAcquire();
+
+        if (permit == null) {
+            throw new ApiEndpointUnavailableException(endpoint + " circuit is open.",
+                circuitBreaker.getRetryAfterMillis());
+        }
+
+        boolean acquired = false;
+
+        try {
+            acquired = limiter.acquire(acquireTimeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (!acquired) {
+                circuitBreaker.cancel(permit);
+            }
+        }
+
+        if (!acquired) {
+            throw new ApiEndpointUnavailableException(
+                endpoint + " concurrency limit (" + limiter.getLimit() + ") is exhausted.");
+        }
+
+        return permit;
+    }
+
+    public void release(String endpoint, ApiCircuitBreaker.Permit permit, long latencyMillis,
+        boolean success) {
+        limiter.release(latencyMillis, success);
+
+        ApiCircuitBreaker.State before = circuitBreaker.getState();
+        circuitBreaker.onResult(permit, success);
+        ApiCircuitBreaker.State after = circuitBreaker.getState();
+
+        if (before != after) {
+            log.warn("{} circuit : {} -> {}", endpoint, before, after);
+        }
+    }
+
+    public int getLimit() {
+        return limiter.getLimit();
+    }
+
+    public ApiCircuitBreaker.State getState() {
+        return circuitBreaker.getState();
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.springbatchpracticalexam.service;
+
+import lombok.Getter;
+
+/**
+ * endpoint 의 Circuit Breaker 가 열려 있거나 동시 요청 한도 때문에 요청을 보내지 못한 경우
+ * <p>
+ * apiSlaveStep 은 이 예외가 발생하면 잠시 기다린 후 chunk 를 다시 처리한다.
+ * Circuit Breaker 가 열려 있으면 ApiRetryBackOffPolicy 가 HALF_OPEN 이 될 때까지 (retryAfterMillis) 기다린다.
+ */
+@Getter
+public class ApiEndpointUnavailableException extends RuntimeException {
+
+    private final long retryAfterMillis;
+
+    public ApiEndpointUnavailableException(String message) {
+        this(message, 0);
+    }
+
+    public ApiEndpointUnavailableException(String message, long retryAfterMillis) {
+        super(message);
+        this.retryAfterMillis = retryAfterMillis;
+    }
+}
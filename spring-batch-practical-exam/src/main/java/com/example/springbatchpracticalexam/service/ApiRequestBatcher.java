@@ -0,0 +1,144 @@
+package com.example.springbatchpracticalexam.service;
+
+import com.example.springbatchpracticalexam.batch.domain.ApiRequestVO;
+import com.example.springbatchpracticalexam.batch.domain.ProductVO;
+import java.util.List;
+
+/**
+ * endpoint 별 요청 묶음 크기 조절
+ *
+ * <pre>
+ *      - ApiItemWriter 가 chunk 의 item 을 item 개수 / payload byte 예산 안에서 요청으로 자른다.
+ *          - chunk 의 item 은 모두 그 chunk 안에서 보내므로 commit 이 item 을 보낸 것을 보장한다.
+ *          - item 예산은 다음 chunk 크기를 정하는 데에도 사용된다. (RequestBudgetCompletionPolicy)
+ *      - 요청 처리 시간을 보고 item 예산을 조절한다. (AIMD)
+ *          - 목표 시간 이내이면 조금씩 늘리고 (additive increase)
+ *          - 목표 시간을 넘으면 크게 줄인다. (multiplicative decrease)
+ * </pre>
+ */
+public class ApiRequestBatcher {
+
+    /**
+     * JSON 으로 변환했을때 item 하나당 고정으로 차지하는 크기 (field 이름, id, price 등)
+     */
+    private static final int BASE_ITEM_BYTES = 96;
+
+    private final int minItems;
+    private final int maxItems;
+    private final int maxBytes;
+    private final long targetLatencyMillis;
+
+    private volatile int itemBudget;
+
+    /**
+     * 실제 전송한 payload 로 계산한 item 하나당 평균 byte 수
+     */
+    private volatile long observedItemBytes;
+
+    public ApiRequestBatcher(int minItems, int maxItems, int initialItems, int maxBytes,
+        long targetLatencyMillis) {
+        this.minItems = Math.max(1, minItems);
+        this.maxItems = Math.max(this.minItems, maxItems);
+        this.maxBytes = maxBytes;
+        this.targetLatencyMillis = targetLatencyMillis;
+        this.itemBudget = Math.min(this.maxItems, Math.max(this.minItems, initialItems));
+    }
+
+    /**
+     * 남은 item 의 앞에서부터 요청 하나에 담을 item 수를 정한다.
+     *
+     * @return 예산을 채우지 못하면 남은 item 수
+     */
+    public int nextBatchSize(List<? extends ApiRequestVO> items) {
+
+        int budget = itemBudget;
+
+        int count = 0;
+        long batchBytes = 0;
+
+        for (ApiRequestVO item : items) {
+            long itemBytes = estimateBytes(item);
+
+            // item 예산이나 byte 예산을 채웠다.
+            if (count >= budget || (count > 0 && batchBytes + itemBytes > maxBytes)) {
+                return count;
+            }
+
+            count++;
+            batchBytes += itemBytes;
+        }
+
+        return count;
+    }
+
+    /**
+     * 요청 하나의 처리 결과를 반영한다.
+     */
+    public synchronized void record(int itemCount, long latencyMillis, boolean success) {
+
+        if (!success || latencyMillis > targetLatencyMillis) {
+            itemBudget = Math.max(minItems, itemBudget / 2);
+            return;
+        }
+
+        // 예산(item 수 또는 byte)을 다 채운 요청이 빨리 끝났을 때만 늘린다.
+        if (itemCount >= Math.min(itemBudget, itemsPerMaxBytes())) {
+            itemBudget = Math.min(maxItems, itemBudget + Math.max(1, minItems / 2));
+        }
+    }
+
+    /**
+     * 실제 전송한 payload 크기를 반영한다.
+     */
+    public void recordPayload(int itemCount, long payloadBytes) {
+
+        if (itemCount <= 0 || payloadBytes <= 0) {
+            return;
+        }
+
+        long itemBytes = payloadBytes / itemCount;
+        long previous = observedItemBytes;
+
+        // 이동 평균
+        observedItemBytes = previous == 0 ? itemBytes : (previous * 7 + itemBytes) / 8;
+    }
+
+    public int getItemBudget() {
+        return itemBudget;
+    }
+
+    /**
+     * byte 예산 안에 담을 수 있는 item 수 (payload 를 아직 관찰하지 못했으면 제한 없음)
+     */
+    private int itemsPerMaxBytes() {
+
+        long observed = observedItemBytes;
+
+        if (observed <= 0) {
+            return Integer.MAX_VALUE;
+        }
+
+        return (int) Math.max(1, Math.min(Integer.MAX_VALUE, maxBytes / observed));
+    }
+
+    private long estimateBytes(ApiRequestVO item) {
+
+        long observed = observedItemBytes;
+
+        if (observed > 0) {
+            return observed;
+        }
+
+        ProductVO product = item.getProduct();
+
+        if (product == null) {
+            return BASE_ITEM_BYTES;
+        }
+
+        return BASE_ITEM_BYTES + length(product.getName()) + length(product.getType());
+    }
+
+    private int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.springbatchpracticalexam.service;
+
+import com.example.springbatchpracticalexam.batch.domain.ApiInfo;
+import com.example.springbatchpracticalexam.batch.domain.ApiRequestVO;
+import com.example.springbatchpracticalexam.batch.domain.ProductVO;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.StreamingHttpOutputMessage;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.web.client.RequestCallback;
+
+/**
+ * ApiInfo 를 요청 body 로 직접 기록한다.
+ *
+ * <pre>
+ *      - RestTemplate 의 MessageConverter 를 거치지 않고 JsonGenerator 로 요청 OutputStream 에 바로 기록한다.
+ *          - ApiInfo 전체를 byte[] 로 만든 후 전송하지 않는다.
+ *          - api-service 가 사용하지 않는 url, responseVO 는 기록하지 않는다.
+ *      - ProductVO 는 미리 만들어둔 ObjectWriter 로 기록한다.
+ *          - watermark 용 updatedAt 은 @JsonIgnore 로 제외된다.
+ *      - JsonGenerator 내부 buffer 는 Jackson 의 BufferRecycler 가 thread 마다 재사용한다.
+ *      - gzip 설정시 Content-Encoding: gzip 으로 압축해서 보낸다.
+ *      - ApiInfo 의 idempotencyKey 는 Idempotency-Key header 로 보낸다.
+ * </pre>
+ */
+public class ApiRequestBodyWriter {
+
+    public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
+    private static final int GZIP_BUFFER_SIZE = 8 * 1024;
+
+    private final ObjectWriter productWriter;
+
+    private final boolean gzip;
+
+    public ApiRequestBodyWriter(ObjectMapper objectMapper, boolean gzip) {
+        this.productWriter = objectMapper.writerFor(ProductVO.class)
+            .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.gzip = gzip;
+    }
+
+    public BodyCallback callback(ApiInfo apiInfo) {
+        return new BodyCallback(apiInfo);
+    }
+
+    /**
+     * 요청 하나에 대한 RequestCallback
+     * <p>
+     * 기록한 byte 수(압축 전)를 확인할 수 있다.
+     */
+    public class BodyCallback implements RequestCallback {
+
+        private final ApiInfo apiInfo;
+
+        private long writtenBytes;
+
+        private BodyCallback(ApiInfo apiInfo) {
+            this.apiInfo = apiInfo;
+        }
+
+        @Override
+        public void doWithRequest(ClientHttpRequest request) throws IOException {
+
+            HttpHeaders headers = request.getHeaders();
+            headers.setContentType(MediaType.APPLICATION_JSON);
+
+            if (gzip) {
+                headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+            }
+
+            if (apiInfo.getIdempotencyKey() != null) {
+                headers.set(IDEMPOTENCY_KEY, apiInfo.getIdempotencyKey());
+            }
+
+            // bufferRequestBody=false 인 경우 connection 의 OutputStream 에 바로 기록된다.
+            if (request instanceof StreamingHttpOutputMessage) {
+                ((StreamingHttpOutputMessage) request).setBody(this::writeBody);
+            } else {
+                writeBody(request.getBody());
+            }
+        }
+
+        private void writeBody(OutputStream target) throws IOException {
+
+            GZIPOutputStream gzipStream = gzip ? new GZIPOutputStream(target, GZIP_BUFFER_SIZE) : null;
+
+            CountingOutputStream out = new CountingOutputStream(
+                gzipStream != null ? gzipStream : target);
+
+            // 요청 OutputStream 의 close 는 RestTemplate 이 처리한다.
+            try (JsonGenerator generator = productWriter.getFactory()
+                .createGenerator(out, JsonEncoding.UTF8)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+
+                generator.writeStartObject();
+                generator.writeArrayFieldStart("apiRequestList");
+
+                for (ApiRequestVO item : apiInfo.getApiRequestList()) {
+                    generator.writeStartObject();
+
+                    if (item.getId() != null) {
+                        generator.writeNumberField("id", item.getId());
+                    }
+
+                    generator.writeFieldName("product");
+                    productWriter.writeValue(generator, item.getProduct());
+
+                    generator.writeEndObject();
+                }
+
+                generator.writeEndArray();
+                generator.writeEndObject();
+            }
+
+            if (gzipStream != null) {
+                gzipStream.finish();
+            }
+
+            writtenBytes = out.getCount();
+        }
+
+        public long getWrittenBytes() {
+            return writtenBytes;
+        }
+    }
+
+    private static class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        private CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        private long getCount() {
+            return count;
+        }
+    }
+}
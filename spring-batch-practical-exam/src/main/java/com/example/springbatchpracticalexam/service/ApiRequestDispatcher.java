@@ -0,0 +1,62 @@
+package com.example.springbatchpracticalexam.service;
+
+import com.example.springbatchpracticalexam.batch.domain.ApiRequestVO;
+import com.example.springbatchpracticalexam.batch.domain.ApiResponseVO;
+import com.example.springbatchpracticalexam.metrics.ApiMetricsRegistry;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+
+/**
+ * ApiService 비동기 호출
+ *
+ * <pre>
+ *      - ApiItemWriter 가 응답을 기다리지 않고 다음 요청을 보낼 수 있도록 요청을 별도 Thread 에서 실행한다.
+ *      - endpoint(ApiService) 마다 동시에 처리중인 요청은 max-in-flight 개를 넘지 않는다.
+ *          - 한도에 도달하면 submit 을 호출한 partition thread 가 대기한다.
+ * </pre>
+ */
+@Component
+public class ApiRequestDispatcher {
+
+    private final AsyncTaskExecutor apiRequestExecutor;
+
+    private final ApiMetricsRegistry metricsRegistry;
+
+    private final int maxInFlight;
+
+    private final Map<AbstractApiService, Semaphore> inFlight = new ConcurrentHashMap<>();
+
+    public ApiRequestDispatcher(AsyncTaskExecutor apiRequestExecutor,
+        ApiMetricsRegistry metricsRegistry,
+        @Value("${api.writer.max-in-flight:2}") int maxInFlight) {
+        this.apiRequestExecutor = apiRequestExecutor;
+        this.metricsRegistry = metricsRegistry;
+        this.maxInFlight = maxInFlight;
+    }
+
+    public CompletableFuture<ApiResponseVO> submit(AbstractApiService apiService,
+        List<? extends ApiRequestVO> items, String idempotencyKey) throws InterruptedException {
+
+        Semaphore permits = inFlight.computeIfAbsent(apiService, key -> new Semaphore(maxInFlight));
+
+        permits.acquire();
+
+        try {
+            // 요청 thread 의 지표도 submit 한 partition step 에 기록한다.
+            return CompletableFuture.supplyAsync(
+                    metricsRegistry.bind(() -> apiService.service(items, idempotencyKey)),
+                    apiRequestExecutor)
+                .whenComplete((response, throwable) -> permits.release());
+        } catch (RuntimeException e) {
+            // executor 가 요청을 거절한 경우
+            permits.release();
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.springbatchpracticalexam.service;
+
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.backoff.BackOffContext;
+import org.springframework.retry.backoff.BackOffInterruptedException;
+import org.springframework.retry.backoff.BackOffPolicy;
+import org.springframework.retry.backoff.Sleeper;
+import org.springframework.retry.backoff.ThreadWaitSleeper;
+
+/**
+ * apiSlaveStep 의 chunk 재처리 대기 시간
+ *
+ * <pre>
+ *      - 기본은 initial-millis 부터 multiplier 배씩 늘어나는 exponential backoff (최대 max-millis)
+ *      - Circuit Breaker 가 열려서 실패한 경우 HALF_OPEN 이 될 때까지 남은 시간보다 짧게 기다리지 않는다.
+ *          - 열려 있는 동안 다시 시도하면 바로 실패하기 때문에, 남은 시간보다 짧게 기다리면 재시도 횟수만 소모한다.
+ * </pre>
+ */
+public class ApiRetryBackOffPolicy implements BackOffPolicy {
+
+    private final long initialMillis;
+
+    private final long maxMillis;
+
+    private final double multiplier;
+
+    private Sleeper sleeper = new ThreadWaitSleeper();
+
+    public ApiRetryBackOffPolicy(long initialMillis, long maxMillis, double multiplier) {
+        this.initialMillis = Math.max(1, initialMillis);
+        this.maxMillis = Math.max(this.initialMillis, maxMillis);
+        this.multiplier = Math.max(1.0, multiplier);
+    }
+
+    public void setSleeper(Sleeper sleeper) {
+        this.sleeper = sleeper;
+    }
+
+    @Override
+    public BackOffContext start(RetryContext context) {
+        return new Context(context, initialMillis);
+    }
+
+    @Override
+    public void backOff(BackOffContext backOffContext) throws BackOffInterruptedException {
+        Context context = (Context) backOffContext;
+
+        long interval = context.next(multiplier, maxMillis);
+        long retryAfter = retryAfterMillis(context.retryContext.getLastThrowable());
+
+        try {
+            sleeper.sleep(Math.max(interval, retryAfter));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BackOffInterruptedException("Thread interrupted while sleeping", e);
+        }
+    }
+
+    /**
+     * 예외가 감싸져 있을 수 있으므로 cause 까지 확인한다.
+     */
+    private long retryAfterMillis(Throwable throwable) {
+        for (Throwable t = throwable; t != null; t = t.getCause()) {
+            if (t instanceof ApiEndpointUnavailableException) {
+                return ((ApiEndpointUnavailableException) t).getRetryAfterMillis();
+            }
+
+            if (t.getCause() == t) {
+                break;
+            }
+        }
+
+        return 0;
+    }
+
+    private static class Context implements BackOffContext {
+
+        private final RetryContext retryContext;
+
+        private long interval;
+
+        private Context(RetryContext retryContext, long interval) {
+            this.retryContext = retryContext;
+            this.interval = interval;
+        }
+
+        private synchronized long next(double multiplier, long maxMillis) {
+            long current = interval;
+            interval = Math.min(maxMillis, (long) (interval * multiplier));
+
+            return current;
+        }
+    }
+}
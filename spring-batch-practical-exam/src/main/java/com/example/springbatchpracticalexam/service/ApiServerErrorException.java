@@ -0,0 +1,20 @@
+package com.example.springbatchpracticalexam.service;
+
+import lombok.Getter;
+
+/**
+ * endpoint 가 5xx 로 응답한 경우
+ * <p>
+ * 정상 응답처럼 파일에 기록하고 commit 하면 요청이 유실되기 때문에 예외로 던져서 chunk 를 rollback 한다.
+ * apiSlaveStep 은 ApiEndpointUnavailableException 과 같이 잠시 기다린 후 chunk 를 다시 처리한다.
+ */
+@Getter
+public class ApiServerErrorException extends RuntimeException {
+
+    private final int status;
+
+    public ApiServerErrorException(int status, String body) {
+        super("status : " + status + ", body : " + body);
+        this.status = status;
+    }
+}
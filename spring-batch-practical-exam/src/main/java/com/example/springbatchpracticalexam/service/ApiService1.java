@@ -2,24 +2,27 @@ package com.example.springbatchpracticalexam.service;
 
 import com.example.springbatchpracticalexam.batch.domain.ApiInfo;
 import com.example.springbatchpracticalexam.batch.domain.ApiResponseVO;
-import org.springframework.http.HttpStatus;
-import org.springframework.http.ResponseEntity;
+import com.example.springbatchpracticalexam.metrics.ApiMetricsRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
 @Service
 public class ApiService1 extends AbstractApiService {
 
-    @Override
-    public ApiResponseVO doApiService(RestTemplate restTemplate, ApiInfo apiInfo) {
-        ResponseEntity<String> response = restTemplate.postForEntity(
-            "http://localhost:8081/api/product/1", apiInfo, String.class);
+    private final String url;
 
-        HttpStatus httpStatus = response.getStatusCode();
+    public ApiService1(RestTemplate apiRestTemplate, ApiRequestBatcher apiRequestBatcher,
+        ApiRequestBodyWriter apiRequestBodyWriter, ApiEndpointGuard apiEndpointGuard,
+        ApiMetricsRegistry apiMetricsRegistry,
+        @Value("${api.endpoint.product1:http://localhost:8081/api/product/1}") String url) {
+        super(apiRestTemplate, apiRequestBatcher, apiRequestBodyWriter, apiEndpointGuard,
+            apiMetricsRegistry);
+        this.url = url;
+    }
 
-        return ApiResponseVO.builder()
-            .status(httpStatus.value())
-            .message(response.getBody())
-            .build();
+    @Override
+    public ApiResponseVO doApiService(RestTemplate restTemplate, ApiInfo apiInfo) {
+        return post(restTemplate, url, apiInfo);
     }
 }
@@ -0,0 +1,45 @@
+create table if not exists job_run_claim
+(
+    id           bigint       NOT NULL auto_increment,
+    job_name     varchar(100) NOT NULL,
+    business_key varchar(100) NOT NULL,
+    claimed_at   datetime(6)  NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_job_run_claim UNIQUE (job_name, business_key)
+);
+
+-- product 는 JPA(ddl-auto: update) 가 관리하지만 이 script 가 먼저 실행되므로 처음에는 여기서 만든다.
+create table if not exists product
+(
+    id         bigint       NOT NULL,
+    name       varchar(255),
+    price      bigint,
+    type       varchar(255),
+    updated_at datetime(6)  NOT NULL DEFAULT CURRENT_TIMESTAMP(6),
+    PRIMARY KEY (id)
+);
+
+-- updated_at 이 없던 기존 product 에는 기본값과 함께 추가한다.
+-- (ddl-auto 의 NOT NULL 컬럼 추가는 데이터가 있으면 실패하고 로그만 남긴다)
+set @ddl = (select if(count(*) = 0,
+                      'alter table product add column updated_at datetime(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6)',
+                      'select 1')
+            from information_schema.columns
+            where table_schema = database()
+              and table_name = 'product'
+              and column_name = 'updated_at');
+prepare stmt from @ddl;
+execute stmt;
+deallocate prepare stmt;
+
+-- apiJob incremental 모드 : where type = ? and (updated_at, id) > watermark order by updated_at, id
+set @ddl = (select if(count(*) = 0,
+                      'create index idx_product_type_updated_at on product (type, updated_at, id)',
+                      'select 1')
+            from information_schema.statistics
+            where table_schema = database()
+              and table_name = 'product'
+              and index_name = 'idx_product_type_updated_at');
+prepare stmt from @ddl;
+execute stmt;
+deallocate prepare stmt;
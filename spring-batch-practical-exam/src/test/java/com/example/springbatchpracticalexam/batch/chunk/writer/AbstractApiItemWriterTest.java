@@ -0,0 +1,245 @@
+package com.example.springbatchpracticalexam.batch.chunk.writer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.springbatchpracticalexam.batch.domain.ApiInfo;
+import com.example.springbatchpracticalexam.batch.domain.ApiRequestVO;
+import com.example.springbatchpracticalexam.batch.domain.ApiResponseVO;
+import com.example.springbatchpracticalexam.batch.domain.ProductVO;
+import com.example.springbatchpracticalexam.metrics.ApiMetricsRegistry;
+import com.example.springbatchpracticalexam.service.AbstractApiService;
+import com.example.springbatchpracticalexam.service.ApiRequestBatcher;
+import com.example.springbatchpracticalexam.service.ApiRequestDispatcher;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.client.RestTemplate;
+
+class AbstractApiItemWriterTest {
+
+    private static final String KEY_PREFIX = "1:partition0:product1";
+
+    // item 예산 3 으로 시작한다.
+    private final ApiRequestBatcher batcher = new ApiRequestBatcher(1, 10, 3, 1_000_000, 200);
+
+    private final RecordingApiService apiService = new RecordingApiService(batcher);
+
+    private final ExecutionContext executionContext = new ExecutionContext();
+
+    @TempDir
+    Path outputDir;
+
+    private ApiItemWriter1 writer;
+
+    @BeforeEach
+    void setUp() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        writer = openWriter();
+    }
+
+    @AfterEach
+    void tearDown() {
+        writer.close();
+        TransactionSynchronizationManager.clear();
+    }
+
+    @Test
+    void chunkIsSplitByItemBudget() throws Exception {
+        writer.write(items(1, 7));
+        commit();
+
+        assertEquals(List.of(3, 3, 1), apiService.sizes);
+        assertKey(0, 0, 0);
+        assertKey(1, 0, 1);
+        assertKey(2, 0, 2);
+        assertEquals(1, executionContext.getLong("product1-writer.chunk.sequence"));
+    }
+
+    @Test
+    void retryOfRolledBackChunkReusesSplitAndKeys() throws Exception {
+        apiService.failAt(1);
+
+        assertThrows(IllegalStateException.class, () -> writer.write(items(1, 7)));
+        rollback();
+
+        // 실패로 예산이 줄어도 다시 처리하는 chunk 는 이전과 같은 크기로 자른다.
+        batcher.record(3, 10_000, false);
+        writer.write(items(1, 7));
+        commit();
+
+        assertEquals(List.of(3, 3, 3, 3, 1), apiService.sizes);
+        assertEquals(apiService.keys.get(0), apiService.keys.get(2));
+        assertEquals(apiService.keys.get(1), apiService.keys.get(3));
+        assertKey(4, 0, 2);
+        assertEquals(1, executionContext.getLong("product1-writer.chunk.sequence"));
+    }
+
+    @Test
+    void nextChunkIsSplitByCurrentBudget() throws Exception {
+        writer.write(items(1, 6));
+        commit();
+
+        batcher.record(3, 10_000, false);
+
+        writer.write(items(7, 8));
+        commit();
+
+        assertEquals(List.of(3, 3, 1, 1), apiService.sizes);
+        assertKey(2, 1, 0);
+        assertKey(3, 1, 1);
+    }
+
+    @Test
+    void restartSendsNothingAndContinuesChunkSequence() throws Exception {
+        writer.write(items(1, 3));
+        commit();
+        writer.close();
+
+        writer = openWriter();
+
+        // commit 된 chunk 는 모두 응답을 받았으므로 open() 에서 다시 보내는 요청이 없다.
+        assertEquals(1, apiService.keys.size());
+
+        writer.write(items(4, 5));
+        commit();
+
+        assertKey(1, 1, 0);
+    }
+
+    @Test
+    void asyncChunkWaitsForEveryRequestBeforeFailing() throws Exception {
+        writer.setApiRequestDispatcher(
+            new ApiRequestDispatcher(new SimpleAsyncTaskExecutor(), new ApiMetricsRegistry(), 2));
+        apiService.failAt(0);
+
+        writer.write(items(1, 7));
+
+        assertThrows(IllegalStateException.class, writer::completeRequests);
+        assertEquals(3, apiService.calls.get());
+        rollback();
+
+        // 다시 처리하면 같은 key 로 모두 다시 보내고 commit 전에 응답을 기록한다.
+        writer.write(items(1, 7));
+        writer.completeRequests();
+        commit();
+
+        assertEquals(6, apiService.calls.get());
+        assertEquals(1, executionContext.getLong("product1-writer.chunk.sequence"));
+    }
+
+    private ApiItemWriter1 openWriter() {
+        ApiItemWriter1 itemWriter = new ApiItemWriter1(apiService);
+        itemWriter.setName("product1-writer");
+        itemWriter.setResource(new FileSystemResource(outputDir.resolve("product1.txt").toFile()));
+        itemWriter.setIdempotencyKeyPrefix(KEY_PREFIX);
+        itemWriter.open(executionContext);
+
+        return itemWriter;
+    }
+
+    private void commit() {
+        writer.update(executionContext);
+
+        List<TransactionSynchronization> synchronizations =
+            TransactionSynchronizationManager.getSynchronizations();
+
+        synchronizations.forEach(synchronization -> synchronization.beforeCommit(false));
+        complete(synchronizations, TransactionSynchronization.STATUS_COMMITTED);
+    }
+
+    private void rollback() {
+        complete(TransactionSynchronizationManager.getSynchronizations(),
+            TransactionSynchronization.STATUS_ROLLED_BACK);
+    }
+
+    private void complete(List<TransactionSynchronization> synchronizations, int status) {
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(status));
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    /**
+     * @param call 요청 순번, chunkSequence : chunk 순번, index : chunk 안에서 요청 순번
+     */
+    private void assertKey(int call, long chunkSequence, int index) {
+        String key = apiService.keys.get(call);
+
+        assertTrue(key.startsWith(KEY_PREFIX + ":" + chunkSequence + ":" + index + ":"), key);
+    }
+
+    private List<ApiRequestVO> items(long fromId, long toId) {
+        List<ApiRequestVO> items = new ArrayList<>();
+
+        for (long id = fromId; id <= toId; id++) {
+            items.add(ApiRequestVO.builder()
+                .id(id)
+                .product(ProductVO.builder()
+                    .id(id)
+                    .name("product" + id)
+                    .price(1000L)
+                    .type("1")
+                    .build())
+                .build());
+        }
+
+        return items;
+    }
+
+    /**
+     * 요청을 보내지 않고 item 수와 Idempotency-Key 를 기록한다.
+     */
+    private static class RecordingApiService extends AbstractApiService {
+
+        private final List<String> keys = new CopyOnWriteArrayList<>();
+
+        private final List<Integer> sizes = new CopyOnWriteArrayList<>();
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        private volatile int failAt = -1;
+
+        private RecordingApiService(ApiRequestBatcher batcher) {
+            super(null, batcher, null, null, null);
+        }
+
+        private void failAt(int call) {
+            this.failAt = call;
+        }
+
+        @Override
+        public ApiResponseVO service(List<? extends ApiRequestVO> list, String idempotencyKey) {
+            int call = calls.getAndIncrement();
+
+            keys.add(idempotencyKey);
+            sizes.add(list.size());
+
+            if (call == failAt) {
+                throw new IllegalStateException("request " + call + " failed");
+            }
+
+            return ApiResponseVO.builder()
+                .status(200)
+                .message("ok")
+                .build();
+        }
+
+        @Override
+        protected ApiResponseVO doApiService(RestTemplate restTemplate, ApiInfo apiInfo) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.example.springbatchpracticalexam.benchmark;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.springbatchpracticalexam.SpringBatchPracticalExamApplication;
+import com.example.springbatchpracticalexam.benchmark.ApiStandInServer.EndpointProfile;
+import com.example.springbatchpracticalexam.metrics.ApiMetricsRegistry;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * apiJob 처리량 측정
+ *
+ * <pre>
+ *      - api-service 대신 ApiStandInServer 를 띄우고 partition 수 / chunk 크기 / writer 모드 / 요청 body 별로 apiJob 을 실행한다.
+ *          - 요청 body : gzip 압축 여부 (api.client.gzip), 메모리에 모은 후 전송 / 바로 전송 (api.client.buffer-request-body)
+ *      - 조합마다 별도의 H2 메모리 DB 로 ApplicationContext 를 새로 띄우고 product 를 적재한 후 실행한다.
+ *      - 정상 : 오류 없이 모든 item 이 전송되고, Job 의 요청 지표가 서버가 받은 요청 수와 같아야 한다.
+ *      - 장애 : product2 가 일부 요청에 503 을 응답해도 재처리로 Job 이 완료되고, 실패가 지표에 기록되어야 한다.
+ *      - 실행 : ./gradlew test --tests '*ApiJobBenchmarkTest' -Dbenchmark=true [-Dbenchmark.products=10000]
+ * </pre>
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ApiJobBenchmarkTest {
+
+    private static final int PRODUCT_COUNT = Integer.getInteger("benchmark.products", 3000);
+
+    private static final int[] GRID_SIZES = {1, 3, 6};
+    private static final int[] CHUNK_SIZES = {10, 100};
+    private static final boolean[] ASYNC_WRITERS = {false, true};
+    private static final boolean[] GZIP_BODIES = {false, true};
+    private static final boolean[] BUFFERED_BODIES = {false, true};
+
+    private static final double DEGRADED_ERROR_RATE = 0.05;
+
+    private static ApiStandInServer healthyServer;
+
+    private static ApiStandInServer degradedServer;
+
+    private static Path outputDir;
+
+    private int runNumber;
+
+    @BeforeAll
+    static void startServer() throws Exception {
+        healthyServer = ApiStandInServer.start(Map.of(
+            1, new EndpointProfile(5, 5, 0, 0),
+            2, new EndpointProfile(20, 20, 0, 0),
+            3, new EndpointProfile(10, 2, 0, 200)));
+
+        // product2 가 느려지면서 일부 요청에 503 을 응답한다.
+        degradedServer = ApiStandInServer.start(Map.of(
+            1, new EndpointProfile(5, 5, 0, 0),
+            2, new EndpointProfile(40, 60, DEGRADED_ERROR_RATE, 0),
+            3, new EndpointProfile(10, 2, 0, 200)));
+
+        outputDir = Files.createTempDirectory("api-benchmark");
+    }
+
+    @AfterAll
+    static void stopServer() {
+        healthyServer.close();
+        degradedServer.close();
+    }
+
+    @Test
+    void apiJobThroughput() throws Exception {
+
+        List<Result> results = new ArrayList<>();
+
+        for (int gridSize : GRID_SIZES) {
+            for (int chunkSize : CHUNK_SIZES) {
+                for (boolean async : ASYNC_WRITERS) {
+                    for (boolean gzip : GZIP_BODIES) {
+                        for (boolean buffered : BUFFERED_BODIES) {
+                            Result result = run(healthyServer, gridSize, chunkSize, async, gzip,
+                                buffered);
+
+                            assertEquals(0, result.serverErrors);
+                            assertEquals(0, result.failures);
+                            assertEquals(result.serverRequests, result.requests);
+                            assertTrue(result.items >= PRODUCT_COUNT);
+
+                            results.add(result);
+                        }
+                    }
+                }
+            }
+        }
+
+        report("healthy", results);
+    }
+
+    @Test
+    void apiJobThroughputWithDegradedEndpoint() throws Exception {
+
+        List<Result> results = new ArrayList<>();
+
+        for (boolean async : ASYNC_WRITERS) {
+            Result result = run(degradedServer, 3, 100, async, false, false);
+
+            // 503 을 받은 요청은 chunk 재처리로 다시 보내므로 모든 item 이 한번 이상 전송된다.
+            assertTrue(result.serverErrors > 0, "no request failed");
+            assertEquals(result.serverErrors, result.failures);
+            assertEquals(result.serverRequests, result.requests);
+            assertTrue(result.items >= PRODUCT_COUNT);
+
+            results.add(result);
+        }
+
+        report("degraded", results);
+    }
+
+    private Result run(ApiStandInServer server, int gridSize, int chunkSize, boolean async,
+        boolean gzip, boolean buffered) throws Exception {
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(
+            SpringBatchPracticalExamApplication.class)
+            .web(WebApplicationType.NONE)
+            .properties(
+                "spring.datasource.url=jdbc:h2:mem:benchmark-" + (++runNumber)
+                    + ";DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+                "spring.batch.job.enabled=false",
+                "batch.scheduler.enabled=false",
+                "logging.level.root=warn",
+                "logging.level." + getClass().getPackageName() + "=info",
+                "api.endpoint.product1=" + server.url(1),
+                "api.endpoint.product2=" + server.url(2),
+                "api.endpoint.product3=" + server.url(3),
+                "api.step.grid-size=" + gridSize,
+                "api.step.chunk-size=" + chunkSize,
+                "api.step.page-size=" + chunkSize,
+                "api.step.backoff-initial-millis=50",
+                "api.step.backoff-max-millis=1000",
+                "api.writer.async=" + async,
+                "api.client.gzip=" + gzip,
+                "api.client.buffer-request-body=" + buffered,
+                "api.writer.output-dir=" + outputDir)
+            .run();
+
+        try {
+            insertProducts(context.getBean(DataSource.class));
+
+            JobLauncher jobLauncher = context.getBean(JobLauncher.class);
+            Job apiJob = context.getBean("apiJob", Job.class);
+
+            long requestsBefore = server.getRequestCount();
+            long errorsBefore = server.getErrorCount();
+            long start = System.nanoTime();
+
+            JobExecution jobExecution = jobLauncher.run(apiJob, new JobParametersBuilder()
+                .addLong("id", System.currentTimeMillis())
+                .toJobParameters());
+
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            assertEquals(BatchStatus.COMPLETED, jobExecution.getStatus());
+
+            ExecutionContext executionContext = jobExecution.getExecutionContext();
+
+            return new Result(gridSize, chunkSize, async, gzip, buffered, millis,
+                server.getRequestCount() - requestsBefore,
+                server.getErrorCount() - errorsBefore,
+                sumOf(executionContext, "count"),
+                sumOf(executionContext, "failures"),
+                sumOf(executionContext, "items"));
+        } finally {
+            context.close();
+        }
+    }
+
+    /**
+     * ApiMetricsRegistry 가 Job 의 ExecutionContext 에 기록한 endpoint 별 값의 합
+     */
+    private long sumOf(ExecutionContext executionContext, String metric) {
+        return executionContext.entrySet().stream()
+            .map(Map.Entry::getKey)
+            .filter(key -> key.startsWith(ApiMetricsRegistry.PREFIX) && key.endsWith("." + metric))
+            .mapToLong(executionContext::getLong)
+            .sum();
+    }
+
+    private void report(String scenario, List<Result> results) {
+        log.info("[{}] {}", scenario, String.format("%-6s %-6s %-6s %-13s %10s %12s %10s %8s",
+            "grid", "chunk", "mode", "body", "millis", "items/sec", "requests", "errors"));
+
+        results.forEach(result -> log.info("[{}] {}", scenario, result));
+    }
+
+    private void insertProducts(DataSource dataSource) {
+        List<Object[]> rows = IntStream.rangeClosed(1, PRODUCT_COUNT)
+            .mapToObj(id -> new Object[]{(long) id, "item" + id, id * 100L,
+                String.valueOf(id % 3 + 1)})
+            .collect(Collectors.toList());
+
+        new JdbcTemplate(dataSource).batchUpdate(
+            "insert into product (id, name, price, type, updated_at) "
+                + "values (?, ?, ?, ?, current_timestamp)", rows);
+    }
+
+    private static class Result {
+
+        private final int gridSize;
+        private final int chunkSize;
+        private final boolean async;
+        private final boolean gzip;
+        private final boolean buffered;
+        private final long millis;
+
+        // ApiStandInServer 가 받은 요청 / 503 응답 수
+        private final long serverRequests;
+        private final long serverErrors;
+
+        // Job 의 ExecutionContext 에 기록된 요청 / 실패 / item 수
+        private final long requests;
+        private final long failures;
+        private final long items;
+
+        private Result(int gridSize, int chunkSize, boolean async, boolean gzip, boolean buffered,
+            long millis, long serverRequests, long serverErrors, long requests, long failures,
+            long items) {
+            this.gridSize = gridSize;
+            this.chunkSize = chunkSize;
+            this.async = async;
+            this.gzip = gzip;
+            this.buffered = buffered;
+            this.millis = millis;
+            this.serverRequests = serverRequests;
+            this.serverErrors = serverErrors;
+            this.requests = requests;
+            this.failures = failures;
+            this.items = items;
+        }
+
+        @Override
+        public String toString() {
+            double itemsPerSecond = PRODUCT_COUNT * 1000.0 / Math.max(1, millis);
+
+            String body = (gzip ? "gzip" : "plain") + "/" + (buffered ? "buffered" : "stream");
+
+            return String.format("%-6d %-6d %-6s %-13s %10d %12.1f %10d %8d", gridSize, chunkSize,
+                async ? "async" : "sync", body, millis, itemsPerSecond, serverRequests, serverErrors);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.springbatchpracticalexam.benchmark;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * api-service 의 ApiController 를 대신하는 테스트용 HTTP 서버
+ *
+ * <pre>
+ *      - api/product/1 ~ 3 을 하나의 port 에서 처리한다. (port 0 이면 빈 port 사용)
+ *      - endpoint 마다 응답 지연 (고정 + 지수분포), 오류 비율 (503), 초당 처리량 제한을 설정할 수 있다.
+ *      - 요청 body 는 끝까지 읽고 버린다. (Content-Encoding: gzip 이면 압축을 해제하면서 읽는다)
+ * </pre>
+ */
+public class ApiStandInServer implements AutoCloseable {
+
+    private final HttpServer server;
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    private final Map<String, Endpoint> endpoints = new HashMap<>();
+
+    private ApiStandInServer(Map<Integer, EndpointProfile> profiles) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 128);
+
+        for (int product = 1; product <= 3; product++) {
+            String path = "/api/product/" + product;
+            Endpoint endpoint = new Endpoint(product,
+                profiles.getOrDefault(product, EndpointProfile.immediate()));
+
+            endpoints.put(path, endpoint);
+            server.createContext(path, endpoint::handle);
+        }
+
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public static ApiStandInServer start(Map<Integer, EndpointProfile> profiles)
+        throws IOException {
+        return new ApiStandInServer(profiles);
+    }
+
+    public String url(int product) {
+        return "http://localhost:" + server.getAddress().getPort() + "/api/product/" + product;
+    }
+
+    public long getRequestCount() {
+        return endpoints.values().stream().mapToLong(endpoint -> endpoint.requests.get()).sum();
+    }
+
+    public long getErrorCount() {
+        return endpoints.values().stream().mapToLong(endpoint -> endpoint.errors.get()).sum();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * endpoint 의 응답 특성
+     */
+    public static class EndpointProfile {
+
+        private final long baseLatencyMillis;
+        private final double meanJitterMillis;
+        private final double errorRate;
+        private final double maxRequestsPerSecond;
+
+        public EndpointProfile(long baseLatencyMillis, double meanJitterMillis, double errorRate,
+            double maxRequestsPerSecond) {
+            this.baseLatencyMillis = baseLatencyMillis;
+            this.meanJitterMillis = meanJitterMillis;
+            this.errorRate = errorRate;
+            this.maxRequestsPerSecond = maxRequestsPerSecond;
+        }
+
+        public static EndpointProfile immediate() {
+            return new EndpointProfile(0, 0, 0, 0);
+        }
+
+        /**
+         * 고정 지연 + 평균 meanJitterMillis 인 지수분포 지연 (긴 꼬리를 가진 응답 시간)
+         */
+        private long sampleLatencyMillis() {
+            double jitter = meanJitterMillis > 0
+                ? -meanJitterMillis * Math.log(1 - ThreadLocalRandom.current().nextDouble())
+                : 0;
+
+            return baseLatencyMillis + Math.round(jitter);
+        }
+    }
+
+    private static class Endpoint {
+
+        private final int product;
+        private final EndpointProfile profile;
+
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+
+        /**
+         * 다음 요청을 처리할 수 있는 시각 (초당 처리량 제한)
+         */
+        private long nextSlotNanos = System.nanoTime();
+
+        private Endpoint(int product, EndpointProfile profile) {
+            this.product = product;
+            this.profile = profile;
+        }
+
+        private void handle(HttpExchange exchange) throws IOException {
+            try (InputStream body = requestBody(exchange)) {
+                body.transferTo(OutputStream.nullOutputStream());
+            }
+
+            requests.incrementAndGet();
+
+            try {
+                throttle();
+                TimeUnit.MILLISECONDS.sleep(profile.sampleLatencyMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            if (ThreadLocalRandom.current().nextDouble() < profile.errorRate) {
+                errors.incrementAndGet();
+                respond(exchange, 503, "product" + product + " is unavailable.");
+                return;
+            }
+
+            respond(exchange, 200, "product" + product + " was successfully processed.");
+        }
+
+        private InputStream requestBody(HttpExchange exchange) throws IOException {
+            if ("gzip".equalsIgnoreCase(exchange.getRequestHeaders().getFirst("Content-Encoding"))) {
+                return new GZIPInputStream(exchange.getRequestBody());
+            }
+
+            return exchange.getRequestBody();
+        }
+
+        private void throttle() throws InterruptedException {
+            if (profile.maxRequestsPerSecond <= 0) {
+                return;
+            }
+
+            long interval = (long) (TimeUnit.SECONDS.toNanos(1) / profile.maxRequestsPerSecond);
+            long slot;
+
+            synchronized (this) {
+                long now = System.nanoTime();
+                slot = Math.max(now, nextSlotNanos);
+                nextSlotNanos = slot + interval;
+            }
+
+            TimeUnit.NANOSECONDS.sleep(slot - System.nanoTime());
+        }
+
+        private void respond(HttpExchange exchange, int status, String message) throws IOException {
+            byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+
+            exchange.getResponseHeaders().set("Content-Type", "text/plain;charset=UTF-8");
+            exchange.sendResponseHeaders(status, bytes.length);
+
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+}
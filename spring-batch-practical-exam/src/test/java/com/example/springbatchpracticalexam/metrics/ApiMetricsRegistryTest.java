@@ -0,0 +1,72 @@
+package com.example.springbatchpracticalexam.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.function.Supplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+
+class ApiMetricsRegistryTest {
+
+    private final ApiMetricsRegistry registry = new ApiMetricsRegistry();
+
+    private final StepExecution stepExecution = new StepExecution("apiSlaveStep:partition0",
+        new JobExecution(1L), 1L);
+
+    @AfterEach
+    void tearDown() {
+        StepSynchronizationManager.close();
+    }
+
+    @Test
+    void publishWritesRecordsOfOpenedStep() {
+        registry.open(stepExecution);
+        StepSynchronizationManager.register(stepExecution);
+
+        registry.record("product1", 1_000, 3, true);
+        registry.record("product1", 2_000, 2, false);
+        registry.recordPayload("product1", 512);
+
+        registry.publish(stepExecution);
+
+        assertEquals(2, stepExecution.getExecutionContext().getLong("api.product1.count"));
+        assertEquals(1, stepExecution.getExecutionContext().getLong("api.product1.failures"));
+        assertEquals(5, stepExecution.getExecutionContext().getLong("api.product1.items"));
+        assertEquals(512, stepExecution.getExecutionContext().getLong("api.product1.bytes"));
+    }
+
+    @Test
+    void recordsAfterPublishAreIgnored() {
+        registry.open(stepExecution);
+        StepSynchronizationManager.register(stepExecution);
+
+        // publish 뒤에 다른 thread 에서 끝나는 요청
+        Supplier<Void> lateRequest = registry.bind(() -> {
+            registry.record("product1", 1_000, 3, true);
+            return null;
+        });
+
+        registry.publish(stepExecution);
+        lateRequest.get();
+
+        StepExecution republished = new StepExecution(stepExecution.getStepName(),
+            stepExecution.getJobExecution(), stepExecution.getId());
+        registry.publish(republished);
+
+        assertTrue(republished.getExecutionContext().isEmpty());
+    }
+
+    @Test
+    void recordsOfUnopenedStepAreIgnored() {
+        StepSynchronizationManager.register(stepExecution);
+
+        registry.record("product1", 1_000, 3, true);
+        registry.publish(stepExecution);
+
+        assertTrue(stepExecution.getExecutionContext().isEmpty());
+    }
+}
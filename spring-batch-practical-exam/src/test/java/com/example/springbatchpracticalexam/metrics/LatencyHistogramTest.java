@@ -0,0 +1,128 @@
+package com.example.springbatchpracticalexam.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+
+    @Test
+    void smallValuesHaveTheirOwnBucket() {
+        for (int value = 0; value < 32; value++) {
+            assertEquals(value, LatencyHistogram.indexOf(value));
+            assertEquals(value, LatencyHistogram.lowerBoundOf(value));
+        }
+    }
+
+    @Test
+    void bucketsAreContiguous() {
+        // 값은 자기 bucket 의 하한 이상, 다음 bucket 의 하한 미만이다.
+        for (long value = 0; value < 100_000; value++) {
+            assertBucketContains(value);
+        }
+
+        assertBucketContains(1L << 40);
+        assertBucketContains((1L << 40) - 1);
+
+        // 가장 큰 값도 마지막 bucket 에 들어간다.
+        assertEquals((64 - 5) * 32 - 1, LatencyHistogram.indexOf(Long.MAX_VALUE));
+    }
+
+    @Test
+    void bucketWidthIsWithinRelativeError() {
+        for (int index = 32; index < (64 - 6) * 32; index++) {
+            long lower = LatencyHistogram.lowerBoundOf(index);
+            long width = LatencyHistogram.lowerBoundOf(index + 1) - lower;
+
+            assertTrue(width * 32 <= lower, "bucket " + index);
+        }
+    }
+
+    @Test
+    void quantilesOfUniformValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        for (long value = 1; value <= 1_000; value++) {
+            histogram.record(value);
+        }
+
+        assertEquals(1_000, histogram.getTotalCount());
+        assertEquals(1_000, histogram.getMax());
+
+        assertWithinRelativeError(500, histogram.getValueAtQuantile(0.5));
+        assertWithinRelativeError(990, histogram.getValueAtQuantile(0.99));
+        assertWithinRelativeError(999, histogram.getValueAtQuantile(0.999));
+
+        // 대표값은 최대값을 넘지 않는다.
+        assertEquals(1_000, histogram.getValueAtQuantile(1.0));
+    }
+
+    @Test
+    void tailIsNotHiddenByMedian() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        for (int i = 0; i < 990; i++) {
+            histogram.record(1_000);
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(200_000);
+        }
+
+        assertWithinRelativeError(1_000, histogram.getValueAtQuantile(0.5));
+        assertWithinRelativeError(1_000, histogram.getValueAtQuantile(0.99));
+        assertWithinRelativeError(200_000, histogram.getValueAtQuantile(0.999));
+        assertEquals(200_000, histogram.getMax());
+    }
+
+    @Test
+    void emptyAndNegativeValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.getValueAtQuantile(0.99));
+        assertEquals("", histogram.encode());
+
+        histogram.record(-5);
+
+        assertEquals(1, histogram.getTotalCount());
+        assertEquals(0, histogram.getValueAtQuantile(0.5));
+        assertEquals("0:1", histogram.encode());
+    }
+
+    @Test
+    void mergeOfEncodedHistograms() {
+        LatencyHistogram first = new LatencyHistogram();
+        LatencyHistogram second = new LatencyHistogram();
+        LatencyHistogram all = new LatencyHistogram();
+
+        for (long value = 1; value <= 500; value++) {
+            first.record(value * 7);
+            all.record(value * 7);
+        }
+        for (long value = 1; value <= 300; value++) {
+            second.record(value * 13);
+            all.record(value * 13);
+        }
+
+        LatencyHistogram merged = new LatencyHistogram();
+        merged.merge(first.encode(), first.getMax());
+        merged.merge(second.encode(), second.getMax());
+
+        assertEquals(all.encode(), merged.encode());
+        assertEquals(all.getTotalCount(), merged.getTotalCount());
+        assertEquals(all.getMax(), merged.getMax());
+        assertEquals(all.getValueAtQuantile(0.99), merged.getValueAtQuantile(0.99));
+    }
+
+    private void assertBucketContains(long value) {
+        int index = LatencyHistogram.indexOf(value);
+
+        assertTrue(LatencyHistogram.lowerBoundOf(index) <= value, "value " + value);
+        assertTrue(value < LatencyHistogram.lowerBoundOf(index + 1), "value " + value);
+    }
+
+    private void assertWithinRelativeError(long expected, long actual) {
+        assertTrue(Math.abs(actual - expected) * 32 <= expected,
+            "expected " + expected + " but was " + actual);
+    }
+}
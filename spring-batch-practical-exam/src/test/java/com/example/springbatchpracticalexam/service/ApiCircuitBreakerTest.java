@@ -0,0 +1,164 @@
+package com.example.springbatchpracticalexam.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.example.springbatchpracticalexam.service.ApiCircuitBreaker.Permit;
+import com.example.springbatchpracticalexam.service.ApiCircuitBreaker.State;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class ApiCircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong(1_000);
+
+    // window 4, 최소 4회, 실패율 50%, 1초간 OPEN, probe 2개
+    private final ApiCircuitBreaker circuitBreaker = new ApiCircuitBreaker(4, 4, 0.5, 1_000, 2,
+        now::get);
+
+    @Test
+    void staysClosedUntilMinimumCalls() {
+        call(false);
+        call(false);
+        call(false);
+
+        assertEquals(State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void opensWhenFailureRateIsReached() {
+        open();
+
+        assertEquals(State.OPEN, circuitBreaker.getState());
+        assertNull(circuitBreaker.tryAcquire());
+        assertEquals(1_000, circuitBreaker.getRetryAfterMillis());
+
+        now.addAndGet(400);
+        assertEquals(600, circuitBreaker.getRetryAfterMillis());
+    }
+
+    @Test
+    void oldFailuresLeaveTheWindow() {
+        call(false);
+        call(true);
+        call(true);
+        call(true);
+        // 실패 1 / 4
+        assertEquals(State.CLOSED, circuitBreaker.getState());
+
+        // 첫 실패가 window 에서 빠지고 실패 1 / 4
+        call(false);
+        assertEquals(State.CLOSED, circuitBreaker.getState());
+
+        // 실패 2 / 4
+        call(false);
+        assertEquals(State.OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    void halfOpenAllowsOnlyProbes() {
+        open();
+        now.addAndGet(1_000);
+
+        assertNotNull(circuitBreaker.tryAcquire());
+        assertEquals(State.HALF_OPEN, circuitBreaker.getState());
+        assertEquals(0, circuitBreaker.getRetryAfterMillis());
+
+        Permit probe = circuitBreaker.tryAcquire();
+        assertNotNull(probe);
+        assertNull(circuitBreaker.tryAcquire());
+
+        // 보내지 못한 probe 는 다시 사용할 수 있다.
+        circuitBreaker.cancel(probe);
+        assertNotNull(circuitBreaker.tryAcquire());
+    }
+
+    @Test
+    void closesWhenAllProbesSucceed() {
+        open();
+        now.addAndGet(1_000);
+
+        call(true);
+        assertEquals(State.HALF_OPEN, circuitBreaker.getState());
+
+        call(true);
+        assertEquals(State.CLOSED, circuitBreaker.getState());
+
+        // window 가 초기화되어 최소 호출 수를 다시 채워야 OPEN 된다.
+        call(false);
+        call(false);
+        assertEquals(State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void reopensWhenProbeFails() {
+        open();
+        now.addAndGet(1_000);
+
+        call(true);
+        call(false);
+
+        assertEquals(State.OPEN, circuitBreaker.getState());
+        assertEquals(1_000, circuitBreaker.getRetryAfterMillis());
+    }
+
+    @Test
+    void resultsAdmittedBeforeOpenAreNotProbes() {
+        Permit late = circuitBreaker.tryAcquire();
+        Permit lateFailure = circuitBreaker.tryAcquire();
+        Permit cancelled = circuitBreaker.tryAcquire();
+
+        open();
+        now.addAndGet(1_000);
+
+        Permit probe = circuitBreaker.tryAcquire();
+        assertEquals(State.HALF_OPEN, circuitBreaker.getState());
+
+        // OPEN 전에 보낸 요청의 결과와 취소는 probe 에 반영하지 않는다.
+        circuitBreaker.onResult(late, true);
+        circuitBreaker.onResult(lateFailure, false);
+        circuitBreaker.cancel(cancelled);
+        assertEquals(State.HALF_OPEN, circuitBreaker.getState());
+
+        assertNotNull(circuitBreaker.tryAcquire());
+        assertNull(circuitBreaker.tryAcquire());
+
+        circuitBreaker.onResult(probe, true);
+        assertEquals(State.HALF_OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    void probeResultsAfterReopenAreIgnored() {
+        open();
+        now.addAndGet(1_000);
+
+        Permit failed = circuitBreaker.tryAcquire();
+        Permit late = circuitBreaker.tryAcquire();
+
+        circuitBreaker.onResult(failed, false);
+        assertEquals(State.OPEN, circuitBreaker.getState());
+
+        // 다시 HALF_OPEN 이 된 후에 끝난 이전 probe 는 새 probe 로 세지 않는다.
+        now.addAndGet(1_000);
+        Permit probe = circuitBreaker.tryAcquire();
+
+        circuitBreaker.onResult(late, true);
+        circuitBreaker.onResult(probe, true);
+        assertEquals(State.HALF_OPEN, circuitBreaker.getState());
+    }
+
+    private void open() {
+        call(false);
+        call(true);
+        call(false);
+        call(true);
+    }
+
+    private void call(boolean success) {
+        Permit permit = circuitBreaker.tryAcquire();
+
+        assertNotNull(permit);
+        circuitBreaker.onResult(permit, success);
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.springbatchpracticalexam.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class ApiConcurrencyLimiterTest {
+
+    @Test
+    void acquireFailsWhenLimitIsExhausted() throws Exception {
+        ApiConcurrencyLimiter limiter = new ApiConcurrencyLimiter(1, 10, 2, 100, 0.5);
+
+        assertTrue(limiter.acquire(0));
+        assertTrue(limiter.acquire(0));
+        assertFalse(limiter.acquire(10));
+    }
+
+    @Test
+    void blockedAcquireProceedsAfterRelease() throws Exception {
+        ApiConcurrencyLimiter limiter = new ApiConcurrencyLimiter(1, 1, 1, 100, 0.5);
+
+        assertTrue(limiter.acquire(0));
+
+        CompletableFuture<Boolean> waiting = CompletableFuture.supplyAsync(() -> {
+            try {
+                return limiter.acquire(5_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        });
+
+        limiter.release(10, true);
+
+        assertTrue(waiting.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void limitIncreasesAdditivelyOnFastSuccess() throws Exception {
+        ApiConcurrencyLimiter limiter = new ApiConcurrencyLimiter(1, 10, 2, 100, 0.5);
+
+        // 2 -> 2.5 -> 2.9 -> 3.24
+        for (int i = 0; i < 3; i++) {
+            assertTrue(limiter.acquire(0));
+            limiter.release(10, true);
+        }
+
+        assertEquals(3, limiter.getLimit());
+    }
+
+    @Test
+    void limitDecreasesMultiplicativelyOnSlowResponseOrFailure() throws Exception {
+        ApiConcurrencyLimiter limiter = new ApiConcurrencyLimiter(1, 10, 8, 100, 0.5);
+
+        assertTrue(limiter.acquire(0));
+        limiter.release(500, true);
+        assertEquals(4, limiter.getLimit());
+
+        assertTrue(limiter.acquire(0));
+        limiter.release(10, false);
+        assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    void limitStaysWithinMinAndMax() throws Exception {
+        ApiConcurrencyLimiter limiter = new ApiConcurrencyLimiter(2, 3, 3, 100, 0.1);
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limiter.acquire(0));
+            limiter.release(10, true);
+        }
+        assertEquals(3, limiter.getLimit());
+
+        assertTrue(limiter.acquire(0));
+        limiter.release(10, false);
+        assertEquals(2, limiter.getLimit());
+    }
+}